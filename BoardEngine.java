@@ -0,0 +1,244 @@
+import java.util.SplittableRandom;
+
+// Headless rules of 2048 on a square board of any size from MIN_SIZE to MAX_SIZE. A board is a byte array with
+// one cell per byte, row by row, each holding the power of 2 its tile value is (0 for an empty cell). Bytes are
+// read unsigned, so tiles up to 2^255 fit, well beyond what the largest board can reach. Moves work in place on
+// the array and allocate nothing. The 4x4 game uses the faster packed GameEngine instead.
+//
+// Cells are not packed into 4-bit nibbles of a long[] like GameEngine's. A nibble holds exponents up to 15, but a
+// 5x5 board can already reach a 2^26 tile, so larger boards need more bits per cell anyway, and a byte is the
+// smallest cell Java reads and writes without shifting and masking. Even the largest board is 225 bytes.
+//
+// Only headless play supports other sizes. The window, suggested moves, replays, the players and the game server
+// are built on GameEngine and play 4x4 boards.
+//
+// Usage: java BoardEngine [size] [games] plays random games on a board of the given size and prints the results.
+public final class BoardEngine {
+
+    // Initialization of constants.
+    public static final int MIN_SIZE = 2;
+    // The largest tile a board can hold is 2^(cells + 1), which must fit in a byte.
+    public static final int MAX_SIZE = 15;
+    public static final int MAX_EXPONENT = 255;
+    // Returned by move when the board does not change.
+    public static final long NO_MOVE = -1;
+
+    private static final int RARE_STARTING_ODDS = 10;
+    private static final int STARTING_TILES = 2;
+
+    private final int size;
+    private final int numCells;
+    // Cell where each line of each direction starts, on the edge tiles move towards, and the step from one cell
+    // of a line to the next moving away from that edge.
+    private final int[][] lineStarts;
+    private final int[] lineSteps;
+
+    // Constructs the rules for boards with given number of rows and columns.
+    public BoardEngine(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be from " + MIN_SIZE + " to " + MAX_SIZE);
+        }
+        this.size = size;
+        this.numCells = size * size;
+        this.lineStarts = new int[GameEngine.NUM_DIRECTIONS][size];
+        this.lineSteps = new int[] { size, -size, 1, -1 };
+        for (int line = 0; line < size; line++) {
+            lineStarts[GameEngine.UP][line] = line;
+            lineStarts[GameEngine.DOWN][line] = (size - 1) * size + line;
+            lineStarts[GameEngine.LEFT][line] = line * size;
+            lineStarts[GameEngine.RIGHT][line] = line * size + size - 1;
+        }
+    }
+
+    // Returns the number of rows and columns.
+    public int getSize() {
+        return size;
+    }
+
+    // Returns the number of cells.
+    public int getNumCells() {
+        return numCells;
+    }
+
+    // Returns a new empty board.
+    public byte[] newBoard() {
+        return new byte[numCells];
+    }
+
+    // Returns a new board with two starting tiles drawn with given generator.
+    public byte[] newGame(SplittableRandom random) {
+        byte[] board = newBoard();
+        for (int tile = 0; tile < STARTING_TILES; tile++) {
+            spawnTile(board, random);
+        }
+        return board;
+    }
+
+    // Returns the exponent stored at given cell.
+    public static int getCell(byte[] board, int cell) {
+        return board[cell] & 0xFF;
+    }
+
+    // Returns the exponent stored at given row and col.
+    public int getCell(byte[] board, int row, int col) {
+        return board[row * size + col] & 0xFF;
+    }
+
+    // Moves given board in given GameEngine direction in place. Returns the score gained by merging, which is 0
+    // if tiles only slid, or NO_MOVE if nothing changed.
+    public long move(byte[] board, int direction) {
+        int[] starts = lineStarts[direction];
+        int step = lineSteps[direction];
+        long score = 0;
+        boolean moved = false;
+        for (int line = 0; line < size; line++) {
+            // Tiles are read from the edge outwards and written back at target. Pending is the exponent at
+            // target while it can still take a merge, or 0 if target is empty.
+            int target = starts[line];
+            int pending = 0;
+            for (int i = 0, cell = starts[line]; i < size; i++, cell += step) {
+                int exponent = board[cell] & 0xFF;
+                if (exponent == 0) {
+                    continue;
+                }
+                board[cell] = 0;
+                if (exponent == pending && exponent < MAX_EXPONENT) {
+                    board[target] = (byte) (exponent + 1);
+                    score = addScore(score, exponent + 1);
+                    target += step;
+                    pending = 0;
+                    moved = true;
+                } else {
+                    if (pending != 0) {
+                        target += step;
+                    }
+                    board[target] = (byte) exponent;
+                    pending = exponent;
+                    moved |= target != cell;
+                }
+            }
+        }
+        return moved ? score : NO_MOVE;
+    }
+
+    // Returns whether moving given board in given direction changes it, without changing it.
+    public boolean canMove(byte[] board, int direction) {
+        int[] starts = lineStarts[direction];
+        int step = lineSteps[direction];
+        for (int line = 0; line < size; line++) {
+            boolean gap = false;
+            int previous = 0;
+            for (int i = 0, cell = starts[line]; i < size; i++, cell += step) {
+                int exponent = board[cell] & 0xFF;
+                if (exponent == 0) {
+                    gap = true;
+                } else if (gap || (exponent == previous && exponent < MAX_EXPONENT)) {
+                    return true;
+                } else {
+                    previous = exponent;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Returns a mask of the directions that change given board, with bit d set if direction d is legal.
+    public int legalMoves(byte[] board) {
+        int legalMoves = 0;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (canMove(board, direction)) {
+                legalMoves |= 1 << direction;
+            }
+        }
+        return legalMoves;
+    }
+
+    // Returns the number of empty cells on given board.
+    public int countEmpty(byte[] board) {
+        int empty = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (board[cell] == 0) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    // Returns the largest exponent on given board.
+    public int maxExponent(byte[] board) {
+        int max = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            max = Math.max(max, board[cell] & 0xFF);
+        }
+        return max;
+    }
+
+    // Spawns a 2, or a 4 with a one in ten chance, in an empty cell of given board drawn uniformly with given
+    // generator. Returns false if the board is full.
+    public boolean spawnTile(byte[] board, SplittableRandom random) {
+        int empty = countEmpty(board);
+        if (empty == 0) {
+            return false;
+        }
+        int skip = random.nextInt(empty);
+        for (int cell = 0; cell < numCells; cell++) {
+            if (board[cell] == 0 && skip-- == 0) {
+                board[cell] = (byte) (random.nextInt(RARE_STARTING_ODDS) == 0 ? GameEngine.RARE_STARTING_EXPONENT
+                        : GameEngine.COMMON_STARTING_EXPONENT);
+                break;
+            }
+        }
+        return true;
+    }
+
+    // Returns the text of the tile value given by exponent. Values too large for a long are written as powers.
+    public static String tileText(int exponent) {
+        return exponent < Long.SIZE - 1 ? Long.toString(1L << exponent) : "2^" + exponent;
+    }
+
+    // Returns score plus the value of a tile with given exponent, stopping at Long.MAX_VALUE.
+    private static long addScore(long score, int exponent) {
+        if (exponent >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        long sum = score + (1L << exponent);
+        return sum < score ? Long.MAX_VALUE : sum;
+    }
+
+    // Plays random games on a board of the size given by the command line arguments and prints the results.
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : GameEngine.NUM_ROWS_AND_COLS;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        BoardEngine engine = new BoardEngine(size);
+        SplittableRandom random = new SplittableRandom();
+        long[] maxTiles = new long[MAX_EXPONENT + 1];
+        long totalScore = 0;
+        long moves = 0;
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            byte[] board = engine.newGame(random);
+            int legalMoves = engine.legalMoves(board);
+            while (legalMoves != 0) {
+                // Picks a random legal direction.
+                int choice = random.nextInt(Integer.bitCount(legalMoves));
+                for (int i = 0; i < choice; i++) {
+                    legalMoves &= legalMoves - 1;
+                }
+                totalScore += engine.move(board, Integer.numberOfTrailingZeros(legalMoves));
+                engine.spawnTile(board, random);
+                moves++;
+                legalMoves = engine.legalMoves(board);
+            }
+            maxTiles[engine.maxExponent(board)]++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Board: %dx%d, games: %d, mean score %.1f, %.0f moves/s%n", size, size, games,
+                (double) totalScore / games, moves / seconds);
+        System.out.println("Max tile:");
+        for (int exponent = 1; exponent <= MAX_EXPONENT; exponent++) {
+            if (maxTiles[exponent] > 0) {
+                System.out.printf("%8s  %10d%n", tileText(exponent), maxTiles[exponent]);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// Pixel layout of a square board of tiles, computed from its number of rows and columns and its length on screen.
+// Tiles are separated by a gap that shrinks as the board grows, with a border one pixel wider around the outside,
+// and share the rest of the length equally. A 4x4 board of 500 pixels has the 112 pixel tiles and 10 pixel gaps
+// the game was designed with. GameBoard and TileSprites only lay out that 4x4 board.
+public class BoardLayout {
+
+    // Initialization of constants.
+    // Length of one gap as a fraction of the board length, multiplied by the number of rows and columns.
+    private static final double GAP_FRACTION = 0.08;
+    private static final int MIN_GAP = 1;
+
+    private final int size;
+    private final int boardLength;
+    private final int gapSize;
+    private final int borderSize;
+    private final int tileSize;
+
+    // Constructs the layout of a board with given number of rows and columns and given length in pixels.
+    public BoardLayout(int size, int boardLength) {
+        this.size = size;
+        this.boardLength = boardLength;
+        this.gapSize = Math.max(MIN_GAP, (int) Math.round(boardLength * GAP_FRACTION / size));
+        this.borderSize = gapSize + 1;
+        this.tileSize = (boardLength - 2 * borderSize - (size - 1) * gapSize) / size;
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException(size + "x" + size + " tiles do not fit in " + boardLength + " pixels");
+        }
+    }
+
+    // Returns the number of rows and columns.
+    public int getSize() {
+        return size;
+    }
+
+    // Returns the length of the board in pixels.
+    public int getBoardLength() {
+        return boardLength;
+    }
+
+    // Returns the length of a tile in pixels.
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    // Returns the distance in pixels from the start of one tile to the start of the next.
+    public int getCellSize() {
+        return tileSize + gapSize;
+    }
+
+    // Returns the width in pixels of the border around the tiles.
+    public int getBorderSize() {
+        return borderSize;
+    }
+
+    // Returns the coordinate where tiles of given row or column start.
+    public int position(int rowOrCol) {
+        return borderSize + rowOrCol * getCellSize();
+    }
+
+    // Returns the row or column of the tile that starts at or just before given coordinate.
+    public int rowOrColAt(int coordinate) {
+        return (coordinate - borderSize) / getCellSize();
+    }
+}
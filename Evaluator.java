@@ -0,0 +1,230 @@
+import java.util.stream.IntStream;
+
+// Judges how promising a packed GameEngine board is, for search players to compare the positions they reach.
+// Every heuristic is a property of one line of four cells, so each is computed once for all 65536 possible rows
+// into its own table. The weighted sum of those tables is one more table, and the value of a board is the sum of
+// that table over its four rows and four columns: eight lookups and a transpose.
+//
+// Heuristics, each for one line:
+//   empty        number of empty cells
+//   merges       number of tiles that could merge with a neighbour, ignoring gaps
+//   monotonicity how far the line is from only rising or only falling, as the smaller of the two sums of rises
+//                and falls in tile exponents raised to a power; a penalty
+//   smoothness   sum of differences in exponent between neighbouring tiles, ignoring gaps; a penalty
+//   corner       exponent of the largest tile if it sits at either end of the line
+//   sum          sum of tile exponents raised to a power; a penalty, so that merged boards look better
+// Every line also gets a base value, which keeps boards with small tiles above 0. Large tiles can still push a
+// board below 0, so a lost game is given lostValue, which is below the value of every board.
+//
+// Tables are built in parallel on the common ForkJoinPool. An evaluator is immutable and can be shared.
+public class Evaluator {
+
+    // Initialization of constants.
+    public static final int NUM_ROWS = 1 << 16;
+    public static final Weights DEFAULT_WEIGHTS = new Weights(270, 700, 47, 4, 0, 0, 11, 3.5, 200_000);
+
+    private static final int CELL_BITS = 4;
+    private static final int CELL_MASK = 0xF;
+    private static final int LINE_MASK = 0xFFFF;
+
+    private final Weights weights;
+    private final float[] empty;
+    private final float[] merges;
+    private final float[] monotonicity;
+    private final float[] smoothness;
+    private final float[] corner;
+    private final float[] sum;
+    // Weighted sum of every table above plus the base.
+    private final float[] lineValues;
+    private final double lostValue;
+
+    // Builds the tables of an evaluator with given weights.
+    public Evaluator(Weights weights) {
+        this.weights = weights;
+        this.empty = new float[NUM_ROWS];
+        this.merges = new float[NUM_ROWS];
+        this.monotonicity = new float[NUM_ROWS];
+        this.smoothness = new float[NUM_ROWS];
+        this.corner = new float[NUM_ROWS];
+        this.sum = new float[NUM_ROWS];
+        this.lineValues = new float[NUM_ROWS];
+        IntStream.range(0, NUM_ROWS).parallel().forEach(this::fillRow);
+        double lowestLine = Double.POSITIVE_INFINITY;
+        for (float lineValue : lineValues) {
+            lowestLine = Math.min(lowestLine, lineValue);
+        }
+        // No board has a lower value than eight of the lowest line.
+        this.lostValue = Math.min(0, 2 * GameEngine.NUM_ROWS_AND_COLS * lowestLine) - 1;
+    }
+
+    // Returns the evaluator with the default weights, building it the first time it is asked for.
+    public static Evaluator getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    // Returns the weights of this evaluator.
+    public Weights getWeights() {
+        return weights;
+    }
+
+    // Returns the value of given board, the sum of the line values of its rows and columns.
+    public double evaluate(long board) {
+        long transposed = GameEngine.transpose(board);
+        return (double) lineValues[(int) board & LINE_MASK] + lineValues[(int) (board >>> 16) & LINE_MASK]
+                + lineValues[(int) (board >>> 32) & LINE_MASK] + lineValues[(int) (board >>> 48)]
+                + lineValues[(int) transposed & LINE_MASK] + lineValues[(int) (transposed >>> 16) & LINE_MASK]
+                + lineValues[(int) (transposed >>> 32) & LINE_MASK] + lineValues[(int) (transposed >>> 48)];
+    }
+
+    // Returns the value of a lost game, below the value of any board.
+    public double getLostValue() {
+        return lostValue;
+    }
+
+    // Returns the weighted value of given packed row of four cells, as used by evaluate.
+    public float lineValue(int row) {
+        return lineValues[row];
+    }
+
+    // Returns the unweighted value of given heuristic for given packed row of four cells.
+    public float heuristic(Heuristic heuristic, int row) {
+        switch (heuristic) {
+            case EMPTY:
+                return empty[row];
+            case MERGES:
+                return merges[row];
+            case MONOTONICITY:
+                return monotonicity[row];
+            case SMOOTHNESS:
+                return smoothness[row];
+            case CORNER:
+                return corner[row];
+            default:
+                return sum[row];
+        }
+    }
+
+    // Computes every heuristic of given packed row, the first cell in the lowest bits, and its weighted value.
+    private void fillRow(int row) {
+        int[] line = new int[GameEngine.NUM_ROWS_AND_COLS];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = (row >>> (i * CELL_BITS)) & CELL_MASK;
+        }
+        int emptyCells = 0;
+        int mergeableTiles = 0;
+        int run = 0;
+        int previous = 0;
+        int maxExponent = 0;
+        double tileSum = 0;
+        for (int exponent : line) {
+            maxExponent = Math.max(maxExponent, exponent);
+            tileSum += Math.pow(exponent, weights.sumPower);
+            if (exponent == 0) {
+                emptyCells++;
+                continue;
+            }
+            // Counts every tile of a run of equal tiles, so a pair counts 2 and three in a row count 3.
+            if (exponent == previous) {
+                run++;
+            } else if (run > 0) {
+                mergeableTiles += run + 1;
+                run = 0;
+            }
+            previous = exponent;
+        }
+        if (run > 0) {
+            mergeableTiles += run + 1;
+        }
+
+        double rises = 0;
+        double falls = 0;
+        for (int i = 1; i < line.length; i++) {
+            double step = Math.pow(line[i], weights.monotonicityPower)
+                    - Math.pow(line[i - 1], weights.monotonicityPower);
+            if (step > 0) {
+                rises += step;
+            } else {
+                falls -= step;
+            }
+        }
+
+        int roughness = 0;
+        int previousTile = -1;
+        for (int i = 0; i < line.length; i++) {
+            if (line[i] != 0) {
+                if (previousTile >= 0) {
+                    roughness += Math.abs(line[i] - line[previousTile]);
+                }
+                previousTile = i;
+            }
+        }
+
+        boolean cornered = maxExponent > 0 && (line[0] == maxExponent || line[line.length - 1] == maxExponent);
+
+        empty[row] = emptyCells;
+        merges[row] = mergeableTiles;
+        monotonicity[row] = (float) Math.min(rises, falls);
+        smoothness[row] = roughness;
+        corner[row] = cornered ? maxExponent : 0;
+        sum[row] = (float) tileSum;
+        lineValues[row] = (float) (weights.base + weights.empty * emptyCells + weights.merges * mergeableTiles
+                - weights.monotonicity * monotonicity[row] - weights.smoothness * roughness
+                + weights.corner * corner[row] - weights.sum * tileSum);
+    }
+
+    // Heuristics that make up the value of a line.
+    public enum Heuristic {
+        EMPTY, MERGES, MONOTONICITY, SMOOTHNESS, CORNER, SUM
+    }
+
+    // Weights of the heuristics of an Evaluator, and the powers exponents are raised to for monotonicity and sum.
+    public static final class Weights {
+
+        private final double empty;
+        private final double merges;
+        private final double monotonicity;
+        private final double monotonicityPower;
+        private final double smoothness;
+        private final double corner;
+        private final double sum;
+        private final double sumPower;
+        private final double base;
+
+        // Constructs weights. Penalties are given as positive weights and subtracted.
+        public Weights(double empty, double merges, double monotonicity, double monotonicityPower,
+                double smoothness, double corner, double sum, double sumPower, double base) {
+            this.empty = empty;
+            this.merges = merges;
+            this.monotonicity = monotonicity;
+            this.monotonicityPower = monotonicityPower;
+            this.smoothness = smoothness;
+            this.corner = corner;
+            this.sum = sum;
+            this.sumPower = sumPower;
+            this.base = base;
+        }
+
+        // Returns the weight of given heuristic.
+        public double get(Heuristic heuristic) {
+            switch (heuristic) {
+                case EMPTY:
+                    return empty;
+                case MERGES:
+                    return merges;
+                case MONOTONICITY:
+                    return monotonicity;
+                case SMOOTHNESS:
+                    return smoothness;
+                case CORNER:
+                    return corner;
+                default:
+                    return sum;
+            }
+        }
+    }
+
+    // Holds the default evaluator, built when first used.
+    private static final class DefaultHolder {
+        private static final Evaluator DEFAULT = new Evaluator(DEFAULT_WEIGHTS);
+    }
+}
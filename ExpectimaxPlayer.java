@@ -0,0 +1,279 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Chooses moves by expectimax search over packed GameEngine boards. Player nodes take the best of the legal
+// directions and chance nodes average over every empty cell spawning a 2 or a 4. Results of chance nodes are
+// cached in a TranspositionTable so that positions reached by different move orders are only searched once.
+//
+// With a ForkJoinPool the search is split at the root: every spawn of the first chance layer under every legal
+// direction becomes its own task, and the pool's work stealing spreads those tasks over all cores while they
+// share one table. Without a pool the whole search runs on the calling thread. A player must not be asked for
+// two moves at once.
+public class ExpectimaxPlayer implements MovePolicy {
+
+    // Initialization of constants.
+    public static final int DEFAULT_DEPTH = 3;
+    public static final int MAX_DEPTH = 10;
+
+    private static final double COMMON_PROBABILITY = 1 - GameEngine.RARE_STARTING_PROBABILITY;
+    // Number of player nodes between checks of the deadline.
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final int depth;
+    private final TranspositionTable transpositionTable;
+    private final Evaluator evaluator;
+    private final ForkJoinPool pool;
+    private final LongAdder nodes;
+    private long searchNanos;
+    private int lastDepth;
+
+    // Constructs a player that searches to the default depth on the common ForkJoinPool.
+    public ExpectimaxPlayer() {
+        this(DEFAULT_DEPTH, new TranspositionTable(), ForkJoinPool.commonPool());
+    }
+
+    // Constructs a single threaded player that searches given number of moves ahead using given table.
+    public ExpectimaxPlayer(int depth, TranspositionTable transpositionTable) {
+        this(depth, transpositionTable, null);
+    }
+
+    // Constructs a player that searches given number of moves ahead using given table, splitting the search
+    // across given pool. A null pool searches on the calling thread.
+    public ExpectimaxPlayer(int depth, TranspositionTable transpositionTable, ForkJoinPool pool) {
+        this(depth, transpositionTable, pool, Evaluator.getDefault());
+    }
+
+    // Constructs a player that searches given number of moves ahead using given table and pool and judges the
+    // positions it reaches with given evaluator.
+    public ExpectimaxPlayer(int depth, TranspositionTable transpositionTable, ForkJoinPool pool,
+            Evaluator evaluator) {
+        this.depth = depth;
+        this.transpositionTable = transpositionTable;
+        this.evaluator = evaluator;
+        this.pool = pool;
+        this.nodes = new LongAdder();
+    }
+
+    // Returns the GameEngine direction with the best expected outcome at the player's depth, or -1 if no move
+    // is legal.
+    public int chooseMove(long board) {
+        long start = System.nanoTime();
+        int move = searchRoot(board, depth, NO_DEADLINE);
+        lastDepth = depth;
+        searchNanos += System.nanoTime() - start;
+        return move;
+    }
+
+    // Returns the best GameEngine direction found within given number of milliseconds, or -1 if no move is
+    // legal. Searches one move ahead, then deeper and deeper until time runs out, and keeps the move from the
+    // deepest search that finished.
+    public int chooseMove(long board, long millis) {
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        // The shallowest search always finishes so that there is a move to return.
+        int bestMove = searchRoot(board, 1, NO_DEADLINE);
+        lastDepth = 1;
+        for (int searchDepth = 2; searchDepth <= MAX_DEPTH && bestMove >= 0; searchDepth++) {
+            int move = searchRoot(board, searchDepth, deadline);
+            if (System.nanoTime() - deadline > 0) {
+                break;
+            }
+            bestMove = move;
+            lastDepth = searchDepth;
+        }
+        searchNanos += System.nanoTime() - start;
+        return bestMove;
+    }
+
+    // Returns the depth of the search that chose the last move.
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    // Returns the number of nodes visited by all searches so far.
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    // Returns the number of nodes visited per second of search so far.
+    public double nodesPerSecond() {
+        return searchNanos == 0 ? 0 : nodes.sum() * 1e9 / searchNanos;
+    }
+
+    // Searches every legal direction of given board and returns the best one, or -1 if none is legal. The
+    // result is meaningless if the deadline passes before the search finishes.
+    private int searchRoot(long board, int searchDepth, long deadline) {
+        transpositionTable.newSearch();
+        int legalMoves = GameEngine.legalMoves(board);
+        double[] values = new double[GameEngine.NUM_DIRECTIONS];
+        if (pool == null) {
+            Search search = new Search(deadline);
+            for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+                if (GameEngine.isLegal(legalMoves, direction)) {
+                    values[direction] = search.chanceNode(GameEngine.move(board, direction), searchDepth);
+                }
+            }
+            nodes.add(search.nodes);
+        } else {
+            searchInParallel(board, legalMoves, searchDepth, deadline, values);
+        }
+        int bestMove = -1;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction) && (bestMove < 0 || values[direction] > values[bestMove])) {
+                bestMove = direction;
+            }
+        }
+        return bestMove;
+    }
+
+    // Fills values with the expected value of each legal direction, running one task per spawn in the first
+    // chance layer.
+    private void searchInParallel(long board, int legalMoves, int searchDepth, long deadline, double[] values) {
+        List<SpawnTask> tasks = new ArrayList<>();
+        int[] emptyCells = new int[GameEngine.NUM_DIRECTIONS];
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                long movedBoard = GameEngine.move(board, direction);
+                for (int cell = 0; cell < GameEngine.NUM_CELLS; cell++) {
+                    if (GameEngine.getCell(movedBoard, cell) == 0) {
+                        emptyCells[direction]++;
+                        tasks.add(new SpawnTask(direction, COMMON_PROBABILITY, searchDepth - 1, deadline,
+                                GameEngine.setCell(movedBoard, cell, GameEngine.COMMON_STARTING_EXPONENT)));
+                        tasks.add(new SpawnTask(direction, GameEngine.RARE_STARTING_PROBABILITY, searchDepth - 1,
+                                deadline, GameEngine.setCell(movedBoard, cell, GameEngine.RARE_STARTING_EXPONENT)));
+                    }
+                }
+            }
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        }
+        for (SpawnTask task : tasks) {
+            values[task.direction] += task.probability * task.join() / emptyCells[task.direction];
+        }
+    }
+
+    // Plays one game without any display and prints the result. Optional argument is the search depth.
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        ExpectimaxPlayer player = new ExpectimaxPlayer(depth, new TranspositionTable(), ForkJoinPool.commonPool());
+        long board = GameEngine.newGame();
+        int score = 0;
+        int moves = 0;
+        int move = player.chooseMove(board);
+        while (move >= 0) {
+            score += GameEngine.moveScore(board, move);
+            board = GameEngine.spawnTile(GameEngine.move(board, move));
+            moves++;
+            move = player.chooseMove(board);
+        }
+        System.out.println("Score: " + score);
+        System.out.println("Max tile: " + GameEngine.tileValue(GameEngine.maxExponent(board)));
+        System.out.println("Moves: " + moves);
+        System.out.printf("Nodes per second: %.0f%n", player.nodesPerSecond());
+    }
+
+    // One sequential depth first search. Counts its own nodes so that threads do not contend on a counter, and
+    // gives up once the deadline passes, without caching anything it computed after that.
+    private final class Search {
+
+        private final long deadline;
+        private long nodes;
+        private int nodesUntilCheck = DEADLINE_CHECK_INTERVAL;
+        private boolean expired;
+
+        // Constructs a search that stops at given System.nanoTime deadline.
+        private Search(long deadline) {
+            this.deadline = deadline;
+        }
+
+        // Returns the value of given board where the player is about to move with given depth left.
+        private double maxNode(long board, int depthLeft) {
+            nodes++;
+            if (depthLeft == 0 || isExpired()) {
+                return evaluator.evaluate(board);
+            }
+            int legalMoves = GameEngine.legalMoves(board);
+            if (legalMoves == 0) {
+                return evaluator.getLostValue();
+            }
+            double best = Double.NEGATIVE_INFINITY;
+            for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+                if (GameEngine.isLegal(legalMoves, direction)) {
+                    best = Math.max(best, chanceNode(GameEngine.move(board, direction), depthLeft));
+                }
+            }
+            return best;
+        }
+
+        // Returns the expected value of given board where a tile is about to spawn with given depth left.
+        private double chanceNode(long board, int depthLeft) {
+            nodes++;
+            double cached = transpositionTable.get(board, depthLeft);
+            if (!Double.isNaN(cached)) {
+                return cached;
+            }
+            double total = 0;
+            int emptyCells = 0;
+            for (int cell = 0; cell < GameEngine.NUM_CELLS; cell++) {
+                if (GameEngine.getCell(board, cell) == 0) {
+                    emptyCells++;
+                    total += COMMON_PROBABILITY * maxNode(
+                            GameEngine.setCell(board, cell, GameEngine.COMMON_STARTING_EXPONENT), depthLeft - 1);
+                    total += GameEngine.RARE_STARTING_PROBABILITY * maxNode(
+                            GameEngine.setCell(board, cell, GameEngine.RARE_STARTING_EXPONENT), depthLeft - 1);
+                }
+            }
+            double value = emptyCells == 0 ? evaluator.evaluate(board) : total / emptyCells;
+            if (!expired) {
+                transpositionTable.put(board, depthLeft, value);
+            }
+            return value;
+        }
+
+        // Returns whether the deadline has passed, reading the clock only every few nodes.
+        private boolean isExpired() {
+            if (!expired && deadline != NO_DEADLINE && --nodesUntilCheck == 0) {
+                nodesUntilCheck = DEADLINE_CHECK_INTERVAL;
+                expired = System.nanoTime() - deadline > 0;
+            }
+            return expired;
+        }
+    }
+
+    // Searches the subtree below one spawn of the first chance layer.
+    private final class SpawnTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int direction;
+        private final double probability;
+        private final int depthLeft;
+        private final long deadline;
+        private final long board;
+
+        // Constructs a task for given board, reached by given direction and a spawn of given probability.
+        private SpawnTask(int direction, double probability, int depthLeft, long deadline, long board) {
+            this.direction = direction;
+            this.probability = probability;
+            this.depthLeft = depthLeft;
+            this.deadline = deadline;
+            this.board = board;
+        }
+
+        // Runs a sequential search of this task's board.
+        protected Double compute() {
+            Search search = new Search(deadline);
+            double value = search.maxNode(board, depthLeft);
+            nodes.add(search.nodes);
+            return value;
+        }
+    }
+}
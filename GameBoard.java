@@ -1,13 +1,16 @@
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
 import java.awt.Font;
 import java.awt.FontMetrics;
-import java.awt.geom.Rectangle2D;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 import javax.swing.JPanel;
 import javax.swing.Timer;
@@ -17,49 +20,132 @@ public class GameBoard extends JPanel implements ActionListener {
 
     // Initialization of constants.
     public static final int NUM_ROWS_AND_COLS = 4;
-    public static final int TILE_SIZE = 112;
-    public static final int ROW_COL_SIZE = 122;
-    public static final int BORDER_SIZE = 11;
+    public static final int BOARD_LENGTH = 500;
+    public static final BoardLayout LAYOUT = new BoardLayout(NUM_ROWS_AND_COLS, BOARD_LENGTH);
+    public static final int TILE_SIZE = LAYOUT.getTileSize();
+    public static final int ROW_COL_SIZE = LAYOUT.getCellSize();
+    public static final int BORDER_SIZE = LAYOUT.getBorderSize();
     public static final int ROW = 0;
     public static final int COL = 1;
 
+    // Animation lengths. Tiles are placed by the time elapsed in each phase, not by the number of frames drawn.
+    public static final long SLIDE_NANOS = 80_000_000L;
+    public static final long GROW_NANOS = 60_000_000L;
+    public static final int DEFAULT_REFRESH_RATE = 60;
+    public static final int SPAWNED_TILE_SIZE = 4;
+    // Moves that can wait while another animates. Further moves are dropped until the queue drains.
+    public static final int INPUT_QUEUE_CAPACITY = 16;
+
     public static final int[] UP = { -1, 0 };
     public static final int[] DOWN = { 1, 0 };
     public static final int[] LEFT = { 0, -1 };
     public static final int[] RIGHT = { 0, 1 };
     public static final int[][] DIRECTIONS = { UP, DOWN, LEFT, RIGHT };
 
-    // Colors of tiles. Array position corresponds to power of 2 that tile value is.
+    // Colors of tiles. Array position corresponds to power of 2 that tile value is. Larger tiles use the last color.
     public static final Color[] TILE_COLORS = { new Color(204, 192, 178), new Color(236, 224, 215),
         new Color(237, 223, 199), new Color(241, 177, 120), new Color(245, 149, 98),
         new Color(245, 124, 94), new Color(246, 94, 60) , new Color(238, 208, 113),
         new Color(238, 205, 99), new Color(236, 199, 79), new Color(239, 197, 63),
         new Color(238, 194, 46), new Color(62, 57, 51) } ;
 
+    public static final Color BACKGROUND_COLOR = new Color(188, 172, 158);
+    public static final Color EMPTY_TILE_COLOR = new Color(204, 192, 178);
+
+    // Suggested move overlay, a translucent label in the middle of the board.
+    public static final Color HINT_COLOR = new Color(62, 57, 51, 170);
+    public static final Color HINT_FONT_COLOR = new Color(250, 247, 241);
+    public static final float HINT_FONT_SIZE = 26;
+    public static final int HINT_WIDTH = 200;
+    public static final int HINT_HEIGHT = 48;
+    public static final String[] DIRECTION_NAMES = { "UP", "DOWN", "LEFT", "RIGHT" };
+
     private ArrayList<GameTile> existingTiles;
     private GameTile[][] boardRepresentation;
     private ScoreBoard scoreBoard;
-    private int[] currentDirection;
     private Timer timer;
-    private Font gameFont;
+    private TileSprites tileSprites;
+    private long board;
+    // Draws every spawn of this game, so the same seed plays out the same spawns for the same moves.
+    private final long seed;
+    private final SplittableRandom random;
+    private Replay replay;
+    private GameHistory history;
+    private int score;
+    private int direction;
+    // Moves waiting for the current one to finish, oldest first from queueHead.
+    private final int[] queuedMoves = new int[INPUT_QUEUE_CAPACITY];
+    private int queueHead;
+    private int queueSize;
+    private long legalMovesBoard;
+    private int legalMoves = -1;
     private boolean moveInProgress;
-    private boolean spawnTile;
-    
-    // Constructs GameBoard connected to given ScoreBoard.
+    private boolean growing;
+    private long phaseStart;
+    // When the current move was swiped and when its animation began, for Metrics.
+    private long swipeStart;
+    private long animationStart;
+    // Region changed by animation since the last frame, and whether there is one.
+    private final Rectangle damage = new Rectangle();
+    private boolean damaged;
+    // Board base with its empty tiles, drawn once and copied on every paint.
+    private BufferedImage background;
+    private final Rectangle clipBounds = new Rectangle();
+    // Background search for a suggested move while hints are on, and its latest result for the current board.
+    private MoveHint moveHint;
+    private MoveHint.Result hint;
+    private final Font hintFont;
+    private final Rectangle hintBounds = new Rectangle((BOARD_LENGTH - HINT_WIDTH) / 2,
+            (BOARD_LENGTH - HINT_HEIGHT) / 2, HINT_WIDTH, HINT_HEIGHT);
+
+    // Constructs GameBoard connected to given ScoreBoard with a new random seed.
     public GameBoard(ScoreBoard scoreBoard, Font gameFont) {
+        this(scoreBoard, gameFont, new SplittableRandom().nextLong());
+    }
+
+    // Constructs GameBoard connected to given ScoreBoard whose spawns are drawn from given seed.
+    public GameBoard(ScoreBoard scoreBoard, Font gameFont, long seed) {
+        this(scoreBoard, gameFont, new TileSprites(gameFont, TILE_SIZE), seed);
+    }
+
+    // Constructs GameBoard connected to given ScoreBoard that draws tiles with given sprites, which may already be
+    // rendered, for example by the launcher while the home screen shows.
+    public GameBoard(ScoreBoard scoreBoard, Font gameFont, TileSprites tileSprites) {
+        this(scoreBoard, gameFont, tileSprites, new SplittableRandom().nextLong());
+    }
+
+    // Constructs GameBoard connected to given ScoreBoard that draws tiles with given sprites and whose spawns are
+    // drawn from given seed.
+    public GameBoard(ScoreBoard scoreBoard, Font gameFont, TileSprites tileSprites, long seed) {
         this.scoreBoard = scoreBoard;
-        this.gameFont = gameFont;
-        this.currentDirection = new int[] {0, 0};
-        this.timer = new Timer(1, this);
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.tileSprites = tileSprites;
+        this.hintFont = gameFont.deriveFont(HINT_FONT_SIZE);
+        // Draws at most one frame per display refresh. The timer only runs while a move is animating.
+        this.timer = new Timer(frameDelay(), this);
         setUpBoardBase();
     }
 
     // Sets up GameBoard and spawns two tiles to begin with.
     private void setUpBoardBase() {
-        setPreferredSize(new Dimension(500, 500));
+        setPreferredSize(new Dimension(BOARD_LENGTH, BOARD_LENGTH));
         existingTiles = new ArrayList<>();
-        existingTiles.add(new GameTile(true));
-        existingTiles.add(new GameTile(true));
+        board = GameEngine.newGame(random);
+        replay = new Replay(seed, board);
+        history = new GameHistory(board);
+        placeTiles();
+    }
+
+    // Replaces all tiles with full size tiles placed as on the engine board.
+    private void placeTiles() {
+        existingTiles.clear();
+        for (int cell = 0; cell < GameEngine.NUM_CELLS; cell++) {
+            int exponent = GameEngine.getCell(board, cell);
+            if (exponent != 0) {
+                existingTiles.add(new GameTile(cell, exponent, true));
+            }
+        }
         boardRepresentation = getBoardRepresentation(false);
     }
 
@@ -76,39 +162,176 @@ public class GameBoard extends JPanel implements ActionListener {
         return boardRepresentation;
     }
 
+    // Returns the packed engine board that is being displayed.
+    public long getBoard() {
+        return board;
+    }
+
+    // Returns the replay of the moves made so far.
+    public Replay getReplay() {
+        return replay;
+    }
+
     // Moves tiles upwards.
     public void swipeUp() {
-        swipe(UP);
+        swipe(GameEngine.UP);
     }
 
     // Moves tiles downwards.
     public void swipeDown() {
-        swipe(DOWN);
+        swipe(GameEngine.DOWN);
     }
 
     // Moves tiles leftwards.
     public void swipeLeft() {
-        swipe(LEFT);
+        swipe(GameEngine.LEFT);
     }
 
     // Moves tiles rightwards.
     public void swipeRight() {
-        swipe(RIGHT);
+        swipe(GameEngine.RIGHT);
     }
 
-    // Moves tiles in given direction.
-    private void swipe(int[] direction) {
+    // Moves tiles in given GameEngine direction. The engine decides the outcome and tiles animate towards it. An
+    // illegal move changes nothing: a move still animating carries on, and the suggested move is kept.
+    public void swipe(int direction) {
+        if (!GameEngine.isLegal(legalMoves(), direction)) {
+            return;
+        }
+        long start = Metrics.start();
+        clearHint();
         moveInProgress = true;
-        currentDirection = direction;
         if (timer.isRunning()) {
             timer.stop();
         }
-        boolean merged = mergeTiles(direction, true);
-        boolean shifted = shiftTiles(direction, true);
-        if (merged || shifted) {
-            timer.start();
-        } else {
-            moveInProgress = false;
+        long movedBoard = GameEngine.move(board, direction);
+        int moveScore = GameEngine.moveScore(board, direction);
+        scoreBoard.updateScore(moveScore);
+        score += moveScore;
+        for (GameTile existingTile : existingTiles) {
+            existingTile.startX = existingTile.x;
+            existingTile.startY = existingTile.y;
+        }
+        setTileTargets(DIRECTIONS[direction]);
+        board = movedBoard;
+        this.direction = direction;
+        growing = false;
+        phaseStart = System.nanoTime();
+        swipeStart = start;
+        animationStart = phaseStart;
+        Metrics.record(Metrics.Metric.SWIPE_MOVE, start);
+        timer.start();
+    }
+
+    // Moves tiles in given GameEngine direction once every move queued before it has been made. A move made
+    // while another animates is queued, and the next frame makes every queued move, animating only the last,
+    // so moves are made as fast as they come instead of one per animation. Returns false if the queue is
+    // full and the move was dropped.
+    public boolean queueSwipe(int direction) {
+        if (!moveInProgress && queueSize == 0) {
+            swipe(direction);
+            return true;
+        }
+        if (queueSize == INPUT_QUEUE_CAPACITY) {
+            return false;
+        }
+        queuedMoves[(queueHead + queueSize) % INPUT_QUEUE_CAPACITY] = direction;
+        queueSize++;
+        return true;
+    }
+
+    // Returns the number of moves waiting for the current one to finish.
+    public int queuedMoves() {
+        return queueSize;
+    }
+
+    // Starts queued moves in order until one of them is legal and animates, or the queue is empty.
+    private void startQueuedMove() {
+        while (!moveInProgress && queueSize > 0) {
+            int queuedMove = queuedMoves[queueHead];
+            queueHead = (queueHead + 1) % INPUT_QUEUE_CAPACITY;
+            queueSize--;
+            swipe(queuedMove);
+        }
+    }
+
+    // Takes back the last move, finishing it first if it is still animating. Returns false if there is nothing
+    // to undo. Queued moves are dropped, since they were meant for the board being undone.
+    public boolean undo() {
+        queueSize = 0;
+        finishMove();
+        if (!history.undo()) {
+            return false;
+        }
+        replay.truncate(replay.getMoves() - 1, history.getBoard());
+        restoreHistory();
+        return true;
+    }
+
+    // Makes the last undone move again. Returns false if there is nothing to redo. Queued moves are dropped.
+    public boolean redo() {
+        queueSize = 0;
+        finishMove();
+        if (!history.redo()) {
+            return false;
+        }
+        replay.record(history.getMove(), history.getBoard());
+        restoreHistory();
+        return true;
+    }
+
+    // Shows the current snapshot of the history and sets the score to match it.
+    private void restoreHistory() {
+        scoreBoard.updateScore(history.getScore() - score);
+        score = history.getScore();
+        board = history.getBoard();
+        placeTiles();
+        clearHint();
+        requestHint();
+        repaint();
+    }
+
+    // Turns the suggested move overlay on or off. While on, every board the player can move on is searched in the
+    // background and the overlay shows the best move found so far.
+    public void setHintsEnabled(boolean enabled) {
+        if (enabled && moveHint == null) {
+            moveHint = new MoveHint(this::showHint);
+            requestHint();
+        } else if (!enabled && moveHint != null) {
+            clearHint();
+            moveHint.close();
+            moveHint = null;
+        }
+    }
+
+    // Returns whether the suggested move overlay is on.
+    public boolean hintsEnabled() {
+        return moveHint != null;
+    }
+
+    // Starts searching for a suggested move if hints are on and the board has settled with a move left.
+    private void requestHint() {
+        if (moveHint != null && !moveInProgress && queueSize == 0 && legalMoves() != 0) {
+            moveHint.search(board);
+        }
+    }
+
+    // Shows given suggestion if it is still for the board being displayed.
+    private void showHint(MoveHint.Result result) {
+        if (moveHint != null && !moveInProgress && result.getBoard() == board) {
+            hint = result;
+            repaint(hintBounds);
+        }
+    }
+
+    // Cancels the search for a suggested move and removes the overlay.
+    private void clearHint() {
+        if (moveHint != null) {
+            moveHint.cancel();
+        }
+        if (hint != null) {
+            hint = null;
+            repaint(hintBounds);
         }
     }
 
@@ -117,223 +340,279 @@ public class GameBoard extends JPanel implements ActionListener {
         return moveInProgress;
     }
 
-    // Searches for tiles that need to merge and updates their target positions. Returns if a merge occurs.
-    private boolean mergeTiles(int[] direction, boolean makeMove) {
-        // The row and column that iteration starts at depends on direction.
-        boolean merged = false;
-        int rowIncrement = direction[ROW] <= 0 ? 1 : -1;
-        int colIncrement = direction[COL] <= 0 ? 1 : -1;
-        int startingRow = direction[ROW] <= 0 ? -direction[ROW] : NUM_ROWS_AND_COLS - 2;
-        int startingCol = direction[COL] <= 0 ? -direction[COL] : NUM_ROWS_AND_COLS - 2;
-        for (int row = startingRow; row >= 0 && row < NUM_ROWS_AND_COLS; row += rowIncrement) {
-            for (int col = startingCol; col >= 0 && col < NUM_ROWS_AND_COLS; col += colIncrement) {
-                GameTile tile = boardRepresentation[row][col];
-                if (tile != null) {
-                    GameTile nearestTile = findNearestTile(direction, row, col);
-                    // Marks that this tile needs to merge if there is another tile of the same value in
-                    // swiping direction.
-                    if (nearestTile != null && tile.value == nearestTile.value && !nearestTile.initialMerge) {
-                        if (!makeMove) {
-                            return true;
-                        }
-                        merged = true;
-                        tile.initialMerge = true;
-                        nearestTile.finalMerge = true;
-                        tile.targetX = nearestTile.x;
-                        tile.targetY = nearestTile.y;
-                        scoreBoard.updateScore(tile.value * 2);
-                    }
+    // Updates target positions of tiles so they end where the engine placed them. Walks each line starting from
+    // the edge that tiles move towards, the same order in which GameEngine merges them.
+    private void setTileTargets(int[] direction) {
+        boolean vertical = direction[ROW] != 0;
+        boolean towardsStart = direction[ROW] < 0 || direction[COL] < 0;
+        for (int line = 0; line < NUM_ROWS_AND_COLS; line++) {
+            int destination = 0;
+            GameTile previousTile = null;
+            for (int step = 0; step < NUM_ROWS_AND_COLS; step++) {
+                int position = towardsStart ? step : NUM_ROWS_AND_COLS - 1 - step;
+                GameTile tile = vertical ? boardRepresentation[position][line] : boardRepresentation[line][position];
+                if (tile == null) {
+                    continue;
+                }
+                // Marks that this tile needs to merge if the last placed tile in this line has the same value.
+                if (previousTile != null && previousTile.value == tile.value
+                        && tile.value < GameEngine.tileValue(GameEngine.MAX_EXPONENT)) {
+                    tile.initialMerge = true;
+                    previousTile.finalMerge = true;
+                    tile.targetX = previousTile.targetX;
+                    tile.targetY = previousTile.targetY;
+                    previousTile = null;
+                } else {
+                    int target = convertRowAndCol(towardsStart ? destination : NUM_ROWS_AND_COLS - 1 - destination);
+                    tile.targetX = vertical ? convertRowAndCol(line) : target;
+                    tile.targetY = vertical ? target : convertRowAndCol(line);
+                    destination++;
+                    previousTile = tile;
                 }
             }
         }
-        return merged;
     }
 
-    // Finds the tile closest to tile at given row and col in given direction.
-    private GameTile findNearestTile(int[] direction, int row, int col) {
-        int rowIncrement = direction[ROW];
-        int colIncrement = direction[COL];
-        while (row + rowIncrement >= 0 && row + rowIncrement < NUM_ROWS_AND_COLS &&
-                col + colIncrement >= 0 && col + colIncrement < NUM_ROWS_AND_COLS) {
-            row += rowIncrement;
-            col += colIncrement;
-            if (boardRepresentation[row][col] != null) {
-                return boardRepresentation[row][col];
-            }
-        }
-        // Returns null if no non-empty tile are near given tile.
-        return null;
-    }
-
-    // Searches for tiles that need to shift and updates their target positions. Returns if a shift occurs.
-    private boolean shiftTiles(int[] direction, boolean makeMove) {
-        boolean shifted = false;
-        // Bases shifts off positions of tiles after their merge.
-        boardRepresentation = getBoardRepresentation(true);
-        // The row and column that iteration starts at depends on direction.
-        int rowIncrement = direction[ROW] <= 0 ? 1 : -1;
-        int colIncrement = direction[COL] <= 0 ? 1 : -1;
-        int startingRow = direction[ROW] <= 0 ? -direction[ROW] : NUM_ROWS_AND_COLS - 2;
-        int startingCol = direction[COL] <= 0 ? -direction[COL] : NUM_ROWS_AND_COLS - 2;
-        for (int row = startingRow; row >= 0 && row < NUM_ROWS_AND_COLS; row += rowIncrement) {
-            for (int col = startingCol; col >= 0 && col < NUM_ROWS_AND_COLS; col += colIncrement) {
-                GameTile tile = boardRepresentation[row][col];
-                if (tile != null) {
-                    int initialRow = row;
-                    int initialCol = col;
-                    int rowChange = direction[ROW];
-                    int colChange = direction[COL];
-                    while (initialRow + rowChange >= 0 && initialRow + rowChange < NUM_ROWS_AND_COLS &&
-                            initialCol + colChange >= 0 && initialCol + colChange < NUM_ROWS_AND_COLS &&
-                            boardRepresentation[initialRow + rowChange][initialCol + colChange] == null) {
-                        if (!makeMove) {
-                            return true;
-                        }
-                        shifted = true;
-                        initialRow += rowChange;
-                        initialCol += colChange;
-                    }
-                    tile.targetX = convertRowAndCol(initialCol);
-                    tile.targetY = convertRowAndCol(initialRow);
-                    boardRepresentation = getBoardRepresentation(true);
-                }
-            }
+    // Returns a 4 bit mask of the GameEngine directions that would change the board. Computed once per board
+    // state and cached until the board changes, so the game over check, hints and players can share it.
+    public int legalMoves() {
+        if (legalMoves < 0 || legalMovesBoard != board) {
+            legalMoves = GameEngine.legalMoves(board);
+            legalMovesBoard = board;
         }
-        return shifted;
+        return legalMoves;
     }
 
     // Returns whether player has lost. Player has lost if no tiles merge of shift in any direction.
     public boolean gameOver() {
-        for (int[] direction : DIRECTIONS) {
-            if (mergeTiles(direction, false) || shiftTiles(direction, false)) {
-                return false;
-            }
-        }
-        return true;
+        long start = Metrics.start();
+        boolean gameOver = legalMoves() == 0;
+        Metrics.record(Metrics.Metric.GAME_OVER_CHECK, start);
+        return gameOver;
+    }
+
+    // Returns the color of a tile with the value given by exponent.
+    public static Color tileColor(int exponent) {
+        return TILE_COLORS[Math.min(exponent, TILE_COLORS.length - 1)];
     }
 
     // Converts coordinate to corresponding row or column.
     private int convertCoordinate(int coordinate) {
-        return (coordinate - BORDER_SIZE) / ROW_COL_SIZE;
+        return LAYOUT.rowOrColAt(coordinate);
     }
 
     // Converts row or column to corresponding coordinate.
     private int convertRowAndCol(int rowAndCol) {
-        return rowAndCol * ROW_COL_SIZE + BORDER_SIZE;
+        return LAYOUT.position(rowAndCol);
     }
 
-    // Draws the game board design with updated tile values and positions.
+    // Draws the game board design with updated tile values and positions. Only tiles overlapping the area being
+    // repainted are drawn.
     public void paint(Graphics g) {
+        long start = Metrics.start();
         super.paint(g);
-        
-        // Initialization of constants used to draw game board.
-        final Color BACKGROUND_COLOR = new Color(188, 172, 158);
-        final Color EMPTY_TILE_COLOR = new Color(204, 192, 178);
-        final Color FONT_COLOR_LARGE = new Color(250, 247, 241);
-        final Color FONT_COLOR_SMALL = new Color(118, 111, 100);
-
-        final int ARC = 10;
-        final int BOARD_LENGTH = 500;
-        final int FONT_SIZE_LARGE = 39;
-        final int FONT_SIZE_MEDIUM = 50;
-        final int FONT_SIZE_SMALL = 60;
-
-        // Sets up the base of game board.
-        g.setColor(BACKGROUND_COLOR);
-        g.fillRoundRect(0, 0, BOARD_LENGTH, BOARD_LENGTH, ARC, ARC);
+        if (background == null) {
+            background = createBackground();
+        }
+        g.drawImage(background, 0, 0, null);
 
-        // Draws empty tiles at every tile position.
-        g.setColor(EMPTY_TILE_COLOR);
-        for (int row = 0; row < NUM_ROWS_AND_COLS; row++) {
-            for (int col = 0; col < NUM_ROWS_AND_COLS; col++) {
-                g.fillRoundRect(convertRowAndCol(col), convertRowAndCol(row), TILE_SIZE, TILE_SIZE, ARC, ARC);
+        // Draws every tile at their current x and y position. Full size tiles are copied from their sprite, while
+        // growing tiles have no text yet and are filled with their color.
+        boolean clipped = g.getClip() != null;
+        if (clipped) {
+            g.getClipBounds(clipBounds);
+        }
+        for (GameTile existingTile : existingTiles) {
+            if (clipped && !overlapsClip(existingTile)) {
+                continue;
+            }
+            int exponent = Integer.numberOfTrailingZeros(existingTile.value);
+            if (existingTile.newTile) {
+                g.setColor(tileColor(exponent));
+                g.fillRoundRect(existingTile.x, existingTile.y, existingTile.size, existingTile.size,
+                        TileSprites.ARC, TileSprites.ARC);
+            } else {
+                g.drawImage(tileSprites.getSprite(exponent), existingTile.x, existingTile.y, null);
             }
         }
+        if (hint != null) {
+            drawHint(g);
+        }
+        Metrics.record(Metrics.Metric.BOARD_PAINT, start);
+    }
 
-        // Draws every tile at their current x and y position.
-        for (GameTile existingTile : existingTiles) {
-            int tileValue = existingTile.value;
-            String tileValueDisplay = "" + tileValue;
-            int xValue = existingTile.x;
-            int yValue = existingTile.y;
-            int fontSize = tileValue < 128 ? FONT_SIZE_SMALL : tileValue < 1024 ? FONT_SIZE_MEDIUM : FONT_SIZE_LARGE;
-            Color fontColor = tileValue < 8 ? FONT_COLOR_SMALL : FONT_COLOR_LARGE;
-
-            // Draws tile with correct color and at correct position.
-            g.setColor((TILE_COLORS[(int) (Math.log10(tileValue) / Math.log10(2))]));
-            g.fillRoundRect(xValue, yValue, existingTile.size, existingTile.size, ARC, ARC);
-
-            // Draws tile value at the center of drawn tile.
-            if (!existingTile.newTile) {
-                g.setFont(gameFont.deriveFont((float) fontSize));
-                g.setColor(fontColor);
-                drawCenteredText(g, tileValueDisplay, xValue, yValue);
+    // Draws the suggested direction and the points it is expected to gain over the moves searched.
+    private void drawHint(Graphics g) {
+        g.setColor(HINT_COLOR);
+        g.fillRoundRect(hintBounds.x, hintBounds.y, hintBounds.width, hintBounds.height, TileSprites.ARC,
+                TileSprites.ARC);
+        String text = DIRECTION_NAMES[hint.getDirection()] + "  +" + Math.round(hint.getExpectedPoints());
+        g.setFont(hintFont);
+        g.setColor(HINT_FONT_COLOR);
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(text, hintBounds.x + (hintBounds.width - fm.stringWidth(text)) / 2,
+                hintBounds.y + (hintBounds.height - fm.getHeight()) / 2 + fm.getAscent());
+    }
+
+    // Returns whether given tile overlaps the area being repainted.
+    private boolean overlapsClip(GameTile tile) {
+        return tile.x < clipBounds.x + clipBounds.width && clipBounds.x < tile.x + tile.size
+                && tile.y < clipBounds.y + clipBounds.height && clipBounds.y < tile.y + tile.size;
+    }
+
+    // Draws the base of game board with empty tiles at every tile position into an image.
+    private BufferedImage createBackground() {
+        BufferedImage image = new BufferedImage(BOARD_LENGTH, BOARD_LENGTH, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.createGraphics();
+        g.setColor(BACKGROUND_COLOR);
+        g.fillRoundRect(0, 0, BOARD_LENGTH, BOARD_LENGTH, TileSprites.ARC, TileSprites.ARC);
+        g.setColor(EMPTY_TILE_COLOR);
+        for (int row = 0; row < NUM_ROWS_AND_COLS; row++) {
+            for (int col = 0; col < NUM_ROWS_AND_COLS; col++) {
+                g.fillRoundRect(convertRowAndCol(col), convertRowAndCol(row), TILE_SIZE, TILE_SIZE,
+                        TileSprites.ARC, TileSprites.ARC);
             }
         }
+        g.dispose();
+        return image;
     }
 
-    // Draws given text centered in a rectangle at given x value and y value.
-    private void drawCenteredText(Graphics g, String textDisplay, int rectXValue, int rectYValue) {
-        Graphics2D g2d = (Graphics2D) g;
-        FontMetrics fm = g2d.getFontMetrics();
-        Rectangle2D r = fm.getStringBounds(textDisplay, g2d);
-        int fontXValue = (rectXValue + TILE_SIZE / 2) - (int) (r.getWidth() / 2);
-        int fontYValue = (rectYValue + TILE_SIZE / 2) - (int) (fm.getHeight() / 2) + fm.getAscent();
-        g.drawString(textDisplay, fontXValue, fontYValue);
+    // Returns the number of milliseconds between frames so that no more frames are drawn than the display shows.
+    private static int frameDelay() {
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        if (!GraphicsEnvironment.isHeadless()) {
+            refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+        }
+        if (refreshRate <= 0) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        return Math.max(1, 1000 / refreshRate);
     }
 
-    // When timer has started, updates positions of tiles every one millisecond. Gives tiles a sliding animation.
+    // When timer has started, updates positions of tiles once per frame. Gives tiles a sliding animation.
+    // Once moves are queued, the current one and all but the last queued move skip to their end, and the last
+    // queued move animates.
     public void actionPerformed(ActionEvent e) {
-        boolean moved = false;
-        // Iterates through each tile and searches for a tile that needs to move.
-        for (GameTile existingTile : existingTiles) {
-            if ((existingTile.x != existingTile.targetX || existingTile.y != existingTile.targetY) && !existingTile.newTile) {
-                existingTile.move(currentDirection);
-                moved = true;
-                // Indicates that move made a change in board, and a tile can be spawned now.
-                spawnTile = true;
+        if (queueSize > 0) {
+            while (queueSize > 0) {
+                finishMove();
+                startQueuedMove();
             }
+            // No animation finishes to ask for a hint if the last queued move was illegal.
+            requestHint();
+        } else if (moveInProgress) {
+            // A frame may already be queued when the timer stops.
+            animate(false);
         }
-        // Iterated through all tiles and none changed positions. Turn is complete.
-        if (!moved) {
-            for (int i = existingTiles.size() - 1; i >= 0; i--) {
-                GameTile existingTile = existingTiles.get(i);
-                if (existingTile.initialMerge) {
-                    existingTiles.remove(existingTile);
-                }
-                if (existingTile.finalMerge) {
-                    existingTile.doubleValue();
-                    existingTile.finalMerge = false;
+    }
+
+    // Skips the rest of the current move's animation and completes the turn right away.
+    public void finishMove() {
+        while (moveInProgress) {
+            animate(true);
+        }
+    }
+
+    // Places tiles where they should be given the time elapsed since the current phase began. Tiles first slide
+    // to their targets, then merged tiles are combined and the spawned tile grows in. Skipping places tiles at
+    // the end of the current phase.
+    private void animate(boolean skip) {
+        long now = System.nanoTime();
+        if (!growing) {
+            double progress = skip ? 1 : progress(now - phaseStart, SLIDE_NANOS);
+            for (GameTile existingTile : existingTiles) {
+                if (existingTile.x != existingTile.targetX || existingTile.y != existingTile.targetY) {
+                    addDamage(existingTile);
+                    existingTile.slide(progress);
+                    addDamage(existingTile);
                 }
             }
-            if (spawnTile) {
-                existingTiles.add(new GameTile());
-                spawnTile = false;
+            if (progress < 1) {
+                repaintDamage();
+                return;
+            }
+            completeSlide();
+            phaseStart = now;
+            growing = true;
+        }
+        double progress = skip ? 1 : progress(now - phaseStart, GROW_NANOS);
+        for (GameTile existingTile : existingTiles) {
+            if (existingTile.newTile) {
+                existingTile.grow(progress);
+                addDamage(existingTile);
             }
-            // Grows new tiles until they are the full tile size.
+        }
+        // Turn is complete once the spawned tile is full size. Nothing is left to animate, so the timer stops.
+        if (progress >= 1) {
             for (GameTile existingTile : existingTiles) {
-                if (existingTile.newTile) {
-                    existingTile.grow();
-                    if (existingTile.x == existingTile.targetX && existingTile.y == existingTile.targetY) {
-                        existingTile.newTile = false;
-                        moveInProgress = false;
-                    }
-                }
+                existingTile.newTile = false;
             }
+            growing = false;
+            moveInProgress = false;
+            timer.stop();
             boardRepresentation = getBoardRepresentation(false);
+            Metrics.record(Metrics.Metric.SWIPE_ANIMATION, animationStart);
+            Metrics.record(Metrics.Metric.SWIPE_TOTAL, swipeStart);
+            requestHint();
+        }
+        repaintDamage();
+    }
+
+    // Adds the area given tile currently covers to the region that needs repainting.
+    private void addDamage(GameTile tile) {
+        if (!damaged) {
+            damage.setBounds(tile.x, tile.y, tile.size, tile.size);
+            damaged = true;
+        } else {
+            damage.add(tile.x, tile.y);
+            damage.add(tile.x + tile.size, tile.y + tile.size);
+        }
+    }
+
+    // Repaints only the region covered by tiles that changed since the last frame.
+    private void repaintDamage() {
+        if (damaged) {
+            repaint(damage.x, damage.y, damage.width, damage.height);
+            damaged = false;
         }
-        repaint();
+    }
+
+    // Returns how far through a phase of given length the elapsed time is, from 0 to 1.
+    private static double progress(long elapsedNanos, long phaseNanos) {
+        return Math.min(1, Math.max(0, (double) elapsedNanos / phaseNanos));
+    }
+
+    // Removes tiles that merged into another, doubles the tiles they merged into and spawns a new tile.
+    private void completeSlide() {
+        for (int i = existingTiles.size() - 1; i >= 0; i--) {
+            GameTile existingTile = existingTiles.get(i);
+            if (existingTile.initialMerge) {
+                existingTiles.remove(i);
+            }
+            if (existingTile.finalMerge) {
+                existingTile.doubleValue();
+                existingTile.finalMerge = false;
+                addDamage(existingTile);
+            }
+        }
+        int cell = GameEngine.randomEmptyCell(board, random);
+        int exponent = GameEngine.randomSpawnExponent(random);
+        board = GameEngine.setCell(board, cell, exponent);
+        replay.record(direction, board);
+        history.push(board, score, direction);
+        GameTile spawnedTile = new GameTile(cell, exponent, false);
+        existingTiles.add(spawnedTile);
+        addDamage(spawnedTile);
     }
 
     // Nested class that represents a tile.
     private class GameTile {
         
-        // Initialization of constants.
-        private static final int COMMON_STARTING_VALUE = 2;
-        private static final int RARE_STARTING_VALUE = 4;
-        
         private int x;
         private int y;
+        private int startX;
+        private int startY;
         private int targetX;
         private int targetY;
         private int value;
@@ -342,68 +621,31 @@ public class GameBoard extends JPanel implements ActionListener {
         private boolean finalMerge;
         private boolean newTile;
     
-        // Constructor that gives tile a random x and y position where there is no current tile.
-        private GameTile() {
-            boolean duplicate = false;
-            do {
-                duplicate = false;
-                targetX = convertRowAndCol((int) (Math.random() * NUM_ROWS_AND_COLS));
-                targetY = convertRowAndCol((int) (Math.random() * NUM_ROWS_AND_COLS));
-                for (GameTile existingTile : existingTiles) {
-                    if (existingTile.x == targetX && existingTile.y == targetY) {
-                        duplicate = true;
-                    }
-                }
-            } while (duplicate);
-            size = 4;
-            x = targetX + (TILE_SIZE / 2) - 2;
-            y = targetY + (TILE_SIZE / 2) - 2;
-            newTile = true;
-            // Tile has a one in ten chance of spawning with a 4 value.
-            int chance = (int) (Math.random() * 10);
-            value =  chance == 0 ? RARE_STARTING_VALUE : COMMON_STARTING_VALUE;
-        }
-
-        // Constructor for starting tiles. Starting tiles do not need to grow.
-        private GameTile(boolean startingTile) {
-            boolean duplicate = false;
-            do {
-                duplicate = false;
-                x = convertRowAndCol((int) (Math.random() * NUM_ROWS_AND_COLS));
-                y = convertRowAndCol((int) (Math.random() * NUM_ROWS_AND_COLS));
-                for (GameTile existingTile : existingTiles) {
-                    if (existingTile.x == x && existingTile.y == y) {
-                        duplicate = true;
-                    }
-                }
-            } while (duplicate);
-            size = TILE_SIZE;
-            targetX = x;
-            targetY = y;
-            int chance = (int) (Math.random() * 10);
-            value =  chance == 0 ? RARE_STARTING_VALUE : COMMON_STARTING_VALUE;
-        }
-     
-        // Moves tile in given direction.
-        private void move(int[] direction) {
-            final int SPEED = 9;
-            if (Math.abs(x - targetX) >= SPEED || Math.abs(y - targetY) >= SPEED) {
-                x += direction[COL] * SPEED;
-                y += direction[ROW] * SPEED;
+        // Constructor that places tile at given cell index with the value given by exponent. Starting tiles do
+        // not need to grow, while spawned tiles begin small at the center of their cell.
+        private GameTile(int cell, int exponent, boolean startingTile) {
+            targetX = convertRowAndCol(cell % NUM_ROWS_AND_COLS);
+            targetY = convertRowAndCol(cell / NUM_ROWS_AND_COLS);
+            value = GameEngine.tileValue(exponent);
+            if (startingTile) {
+                size = TILE_SIZE;
+                x = targetX;
+                y = targetY;
             } else {
-                x += direction[COL];
-                y += direction[ROW];
+                grow(0);
+                newTile = true;
             }
         }
+     
+        // Places tile given fraction of the way from its start position to its target position.
+        private void slide(double progress) {
+            x = startX + (int) Math.round((targetX - startX) * progress);
+            y = startY + (int) Math.round((targetY - startY) * progress);
+        }
 
-        // Grows tile and makes tile centered based on target position.
-        private void grow() {
-            final int SPEED = 3;
-            if (TILE_SIZE - size >= SPEED) {
-                size += SPEED;
-            } else {
-                size++;
-            }
+        // Sizes tile given fraction of the way from spawned size to full size, centered on target position.
+        private void grow(double progress) {
+            size = SPAWNED_TILE_SIZE + (int) Math.round((TILE_SIZE - SPAWNED_TILE_SIZE) * progress);
             x = (targetX + TILE_SIZE / 2) - (int) (size / 2);
             y = (targetY + TILE_SIZE / 2) - (int) (size / 2);
         }
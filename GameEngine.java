@@ -0,0 +1,308 @@
+import java.util.SplittableRandom;
+
+// Headless rules of 2048. The 4x4 board is packed into a single long where each cell holds, in four bits,
+// the power of 2 that its tile value is (0 for an empty cell). Row r occupies bits 16r to 16r + 15 and column c
+// of that row occupies the four bits starting at 4c. Every operation is a pure function on the packed value.
+//
+// Spawning draws from a SplittableRandom passed in by the caller, so each game can own a seeded generator and
+// replay the same spawns. The overloads without one use a generator private to the calling thread.
+public final class GameEngine {
+
+    // Initialization of constants.
+    public static final int NUM_ROWS_AND_COLS = 4;
+    public static final int NUM_CELLS = NUM_ROWS_AND_COLS * NUM_ROWS_AND_COLS;
+    public static final int MAX_EXPONENT = 15;
+
+    // Directions in the same order as GameBoard.DIRECTIONS.
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    public static final int NUM_DIRECTIONS = 4;
+
+    public static final long EMPTY_BOARD = 0L;
+
+    // Spawned tiles are a 2, or a 4 with a one in ten chance.
+    public static final int COMMON_STARTING_EXPONENT = 1;
+    public static final int RARE_STARTING_EXPONENT = 2;
+    public static final double RARE_STARTING_PROBABILITY = 0.1;
+    private static final int RARE_STARTING_ODDS = 10;
+
+    private static final long CELL_MASK = 0xFL;
+    private static final long ROW_MASK = 0xFFFFL;
+    // Lowest bit of every cell.
+    private static final long CELL_LOW_BITS = 0x1111111111111111L;
+
+    // Generators for callers that do not pass their own. Each is seeded differently when its thread first spawns.
+    private static final ThreadLocal<SplittableRandom> THREAD_RANDOM = ThreadLocal.withInitial(SplittableRandom::new);
+
+    private GameEngine() {
+    }
+
+    // Returns the exponent stored at given row and col.
+    public static int getCell(long board, int row, int col) {
+        return getCell(board, row * NUM_ROWS_AND_COLS + col);
+    }
+
+    // Returns the exponent stored at given cell index (row * 4 + col).
+    public static int getCell(long board, int cell) {
+        return (int) ((board >>> (cell << 2)) & CELL_MASK);
+    }
+
+    // Returns board with given cell index set to given exponent.
+    public static long setCell(long board, int cell, int exponent) {
+        int shift = cell << 2;
+        return (board & ~(CELL_MASK << shift)) | ((long) exponent << shift);
+    }
+
+    // Returns board with given row and col set to given exponent.
+    public static long setCell(long board, int row, int col, int exponent) {
+        return setCell(board, row * NUM_ROWS_AND_COLS + col, exponent);
+    }
+
+    // Returns the 16 bit row at given index.
+    public static int getRow(long board, int row) {
+        return (int) ((board >>> (row << 4)) & ROW_MASK);
+    }
+
+    // Returns the tile value that given exponent stands for.
+    public static int tileValue(int exponent) {
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    // Returns board after moving in given direction. Returns the same board if nothing moves.
+    public static long move(long board, int direction) {
+        switch (direction) {
+            case UP:
+                return transpose(moveRowsLeft(transpose(board)));
+            case DOWN:
+                return transpose(moveRowsRight(transpose(board)));
+            case LEFT:
+                return moveRowsLeft(board);
+            case RIGHT:
+                return moveRowsRight(board);
+            default:
+                throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+    }
+
+    // Returns the score gained by moving given board in given direction.
+    public static int moveScore(long board, int direction) {
+        // Moving a line towards either end scores the same, though not always by merging the same pairs, so only
+        // orientation matters.
+        long rows = direction == UP || direction == DOWN ? transpose(board) : board;
+        return MoveTable.score((int) (rows & ROW_MASK))
+                + MoveTable.score((int) ((rows >>> 16) & ROW_MASK))
+                + MoveTable.score((int) ((rows >>> 32) & ROW_MASK))
+                + MoveTable.score((int) (rows >>> 48));
+    }
+
+    // Returns a 4 bit mask of the directions that change given board. Bit d is set when direction d is legal.
+    public static int legalMoves(long board) {
+        int mask = 0;
+        if (rowsCanMove(board, true)) {
+            mask |= 1 << LEFT;
+        }
+        if (rowsCanMove(board, false)) {
+            mask |= 1 << RIGHT;
+        }
+        long transposed = transpose(board);
+        if (rowsCanMove(transposed, true)) {
+            mask |= 1 << UP;
+        }
+        if (rowsCanMove(transposed, false)) {
+            mask |= 1 << DOWN;
+        }
+        return mask;
+    }
+
+    // Returns whether given direction is set in a mask from legalMoves.
+    public static boolean isLegal(int legalMoves, int direction) {
+        return (legalMoves & (1 << direction)) != 0;
+    }
+
+    // Returns whether a move in any direction changes given board.
+    public static boolean canMove(long board) {
+        return legalMoves(board) != 0;
+    }
+
+    // Returns board with rows and columns swapped.
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    // Returns the number of empty cells on given board.
+    public static int countEmpty(long board) {
+        return Integer.bitCount(emptyMask(board));
+    }
+
+    // Returns a mask with bit i set if cell i of given board is empty. Works on all cells at once: each cell's
+    // bits are folded into its lowest bit, and those 16 bits are then gathered into the low 16 bits.
+    public static int emptyMask(long board) {
+        long occupied = board | board >>> 1;
+        occupied |= occupied >>> 2;
+        long empty = ~occupied & CELL_LOW_BITS;
+        empty = (empty | empty >>> 3) & 0x0303030303030303L;
+        empty = (empty | empty >>> 6) & 0x000F000F000F000FL;
+        empty = (empty | empty >>> 12) & 0x000000FF000000FFL;
+        return (int) ((empty | empty >>> 24) & 0xFFFFL);
+    }
+
+    // Returns the largest exponent on given board.
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            max = Math.max(max, getCell(board, cell));
+        }
+        return max;
+    }
+
+    // Returns a random empty cell index on given board, or -1 if board is full.
+    public static int randomEmptyCell(long board) {
+        return randomEmptyCell(board, THREAD_RANDOM.get());
+    }
+
+    // Returns an empty cell index on given board drawn uniformly with given generator, or -1 if board is full.
+    // Draws once and picks the matching set bit of the empty mask, however full the board is.
+    public static int randomEmptyCell(long board, SplittableRandom random) {
+        int empty = emptyMask(board);
+        if (empty == 0) {
+            return -1;
+        }
+        return selectBit(empty, randomBelow(random, Integer.bitCount(empty)));
+    }
+
+    // Returns a number from 0 up to but not including given small bound drawn with given generator. Scales one
+    // 32 bit draw instead of dividing, which is off from uniform by less than bound / 2^32.
+    private static int randomBelow(SplittableRandom random, int bound) {
+        return (int) (((random.nextInt() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+
+    // Returns the position of the set bit of given 16 bit mask that has given number of set bits below it. Halves
+    // the range four times, so it takes the same steps for every mask.
+    private static int selectBit(int mask, int rank) {
+        int position = 0;
+        for (int width = NUM_CELLS / 2; width > 0; width >>= 1) {
+            int below = Integer.bitCount((mask >>> position) & ((1 << width) - 1));
+            // All ones when the bit is above this half, without a branch the processor would have to guess.
+            int above = (below - rank - 1) >> 31;
+            rank -= below & above;
+            position += width & above;
+        }
+        return position;
+    }
+
+    // Returns the exponent of a newly spawned tile. Tile has a one in ten chance of spawning with a 4 value.
+    public static int randomSpawnExponent() {
+        return randomSpawnExponent(THREAD_RANDOM.get());
+    }
+
+    // Returns the exponent of a newly spawned tile drawn with given generator.
+    public static int randomSpawnExponent(SplittableRandom random) {
+        return randomBelow(random, RARE_STARTING_ODDS) == 0 ? RARE_STARTING_EXPONENT : COMMON_STARTING_EXPONENT;
+    }
+
+    // Returns board with a new tile spawned in a random empty cell. Returns the same board if it is full.
+    public static long spawnTile(long board) {
+        return spawnTile(board, THREAD_RANDOM.get());
+    }
+
+    // Returns board with a new tile spawned in an empty cell drawn with given generator. Returns the same board
+    // if it is full.
+    public static long spawnTile(long board, SplittableRandom random) {
+        int cell = randomEmptyCell(board, random);
+        return cell < 0 ? board : setCell(board, cell, randomSpawnExponent(random));
+    }
+
+    // Returns a new board with two starting tiles.
+    public static long newGame() {
+        return newGame(THREAD_RANDOM.get());
+    }
+
+    // Returns a new board with two starting tiles drawn with given generator.
+    public static long newGame(SplittableRandom random) {
+        return spawnTile(spawnTile(EMPTY_BOARD, random), random);
+    }
+
+    // Returns whether sliding any row of given board towards column 0 (or column 3) changes it.
+    private static boolean rowsCanMove(long board, boolean towardsStart) {
+        for (int shift = 0; shift < 64; shift += 16) {
+            int row = (int) ((board >>> shift) & ROW_MASK);
+            if ((towardsStart ? MoveTable.left(row) : MoveTable.right(row)) != row) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves every row of given board towards column 0 using the precomputed row table.
+    private static long moveRowsLeft(long board) {
+        return (long) MoveTable.left((int) (board & ROW_MASK))
+                | (long) MoveTable.left((int) ((board >>> 16) & ROW_MASK)) << 16
+                | (long) MoveTable.left((int) ((board >>> 32) & ROW_MASK)) << 32
+                | (long) MoveTable.left((int) (board >>> 48)) << 48;
+    }
+
+    // Moves every row of given board towards column 3 using the precomputed row table.
+    private static long moveRowsRight(long board) {
+        return (long) MoveTable.right((int) (board & ROW_MASK))
+                | (long) MoveTable.right((int) ((board >>> 16) & ROW_MASK)) << 16
+                | (long) MoveTable.right((int) ((board >>> 32) & ROW_MASK)) << 32
+                | (long) MoveTable.right((int) (board >>> 48)) << 48;
+    }
+
+    // Slides and merges a single 16 bit row towards column 0. Used to build MoveTable.
+    static int slideRowLeft(int row) {
+        int result = 0;
+        int destination = 0;
+        int previous = 0;
+        for (int col = 0; col < NUM_ROWS_AND_COLS; col++) {
+            int exponent = (row >>> (col << 2)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            // Two equal tiles merge unless the merged value would not fit in a cell. Merging bumps the
+            // exponent already placed at the previous destination.
+            if (previous == exponent && exponent < MAX_EXPONENT) {
+                result += 1 << ((destination - 1) << 2);
+                previous = 0;
+            } else {
+                result |= exponent << (destination << 2);
+                destination++;
+                previous = exponent;
+            }
+        }
+        return result;
+    }
+
+    // Returns the score gained by sliding a single 16 bit row in either direction. Used to build MoveTable.
+    static int rowScore(int row) {
+        int score = 0;
+        int previous = 0;
+        for (int col = 0; col < NUM_ROWS_AND_COLS; col++) {
+            int exponent = (row >>> (col << 2)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            if (previous == exponent && exponent < MAX_EXPONENT) {
+                score += 1 << (exponent + 1);
+                previous = 0;
+            } else {
+                previous = exponent;
+            }
+        }
+        return score;
+    }
+
+    // Returns given 16 bit row with its columns in reverse order.
+    static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+}
@@ -0,0 +1,101 @@
+// Undo and redo for a game, kept as a ring buffer of snapshots. A snapshot is the packed board, the score and the
+// move that led to it, 13 bytes in all, so the default thousand levels of undo take about 13 KB. Snapshots are
+// plain values: restoring one needs no copying, and a branch can be explored from any of them with GameEngine.
+//
+// The oldest snapshots are overwritten once the buffer is full. Making a move after undoing drops the snapshots
+// that could have been redone.
+public class GameHistory {
+
+    // Initialization of constants.
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int NO_MOVE = -1;
+
+    private final long[] boards;
+    private final int[] scores;
+    private final byte[] moves;
+    // Slot of the current snapshot, and how many snapshots before and after it can be returned to.
+    private int current;
+    private int undoLevels;
+    private int redoLevels;
+
+    // Constructs a history of the default capacity that starts at given board with score 0.
+    public GameHistory(long startBoard) {
+        this(startBoard, DEFAULT_CAPACITY);
+    }
+
+    // Constructs a history that keeps given number of snapshots and starts at given board with score 0.
+    public GameHistory(long startBoard, int capacity) {
+        boards = new long[capacity];
+        scores = new int[capacity];
+        moves = new byte[capacity];
+        boards[0] = startBoard;
+        moves[0] = NO_MOVE;
+    }
+
+    // Adds the snapshot reached by a move in given direction. Anything that could have been redone is dropped.
+    public void push(long board, int score, int move) {
+        current = next(current);
+        boards[current] = board;
+        scores[current] = score;
+        moves[current] = (byte) move;
+        undoLevels = Math.min(undoLevels + 1, boards.length - 1);
+        redoLevels = 0;
+    }
+
+    // Returns to the previous snapshot. Returns false if there is none.
+    public boolean undo() {
+        if (undoLevels == 0) {
+            return false;
+        }
+        current = previous(current);
+        undoLevels--;
+        redoLevels++;
+        return true;
+    }
+
+    // Returns to the snapshot that was last undone. Returns false if there is none.
+    public boolean redo() {
+        if (redoLevels == 0) {
+            return false;
+        }
+        current = next(current);
+        redoLevels--;
+        undoLevels++;
+        return true;
+    }
+
+    // Returns whether there is a snapshot to undo to.
+    public boolean canUndo() {
+        return undoLevels > 0;
+    }
+
+    // Returns whether there is a snapshot to redo to.
+    public boolean canRedo() {
+        return redoLevels > 0;
+    }
+
+    // Returns the board of the current snapshot.
+    public long getBoard() {
+        return boards[current];
+    }
+
+    // Returns the score of the current snapshot.
+    public int getScore() {
+        return scores[current];
+    }
+
+    // Returns the direction of the move that led to the current snapshot, or NO_MOVE for the first one.
+    public int getMove() {
+        return moves[current];
+    }
+
+    // Returns the slot after given slot.
+    private int next(int slot) {
+        return slot + 1 == boards.length ? 0 : slot + 1;
+    }
+
+    // Returns the slot before given slot.
+    private int previous(int slot) {
+        return slot == 0 ? boards.length - 1 : slot - 1;
+    }
+}
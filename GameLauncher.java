@@ -8,34 +8,119 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
-// Launches a game of 2048.
+// Launches a game of 2048. Startup loads the font, the score store with its leaderboard, the replay log, the tile
+// sprites and the evaluator of the expectimax player on background threads in parallel. The home screen only needs
+// the font and shows as soon as it is ready, and the score board and game board are built when PLAY is pressed, by
+// which time the rest has loaded.
 public class GameLauncher {
 
     // Initialization of contants
     public static final int SCREEN_SIZE = 750; // height and width of frame
+    public static final String REPLAYS_FILE = "Replays.bin";
 
     public static final Color BACKGROUND_COLOR = new Color(251, 248, 239);
+    public static final int STARTUP_THREADS = 3;
 
-    // Constructs and manipulates GUI objects on the event dispatch thread.
+    // Runs the expectimax player's searches, so the event dispatch thread keeps painting and taking input while
+    // the player thinks.
+    private static final ExecutorService AUTO_PLAY_SEARCH = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Auto play search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Keeps the replay of every finished game. Null if the file cannot be opened.
+    private static ReplayLog replayLog;
+    // Startup work running in the background, joined when first needed.
+    private static CompletableFuture<ScoreWriter> scoreWriterLoad;
+    private static CompletableFuture<ReplayLog> replayLogLoad;
+    private static CompletableFuture<TileSprites> tileSpritesLoad;
+
+    // Starts loading in the background, then constructs and manipulates GUI objects on the event dispatch thread
+    // once the font is ready.
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> launchGame());
+        long start = Metrics.start();
+        ExecutorService loader = Executors.newFixedThreadPool(STARTUP_THREADS, task -> {
+            Thread thread = new Thread(task, "Startup loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Font> fontLoad = CompletableFuture.supplyAsync(GameLauncher::createGameFont, loader);
+        // A load that fails leaves null, and the game goes without what it would have loaded.
+        scoreWriterLoad = CompletableFuture.supplyAsync(GameLauncher::openScores, loader)
+                .exceptionally(GameLauncher::loadFailed);
+        replayLogLoad = CompletableFuture.supplyAsync(GameLauncher::openReplayLog, loader)
+                .exceptionally(GameLauncher::loadFailed);
+        tileSpritesLoad = fontLoad.thenApplyAsync(GameLauncher::renderSprites, loader)
+                .exceptionally(GameLauncher::loadFailed);
+        // Builds the lookup tables of the expectimax player's evaluator, which fills them in parallel.
+        CompletableFuture<Void> evaluatorLoad = CompletableFuture.runAsync(Evaluator::getDefault, loader);
+        SwingUtilities.invokeLater(() -> launchGame(fontLoad, start));
+        CompletableFuture.allOf(scoreWriterLoad, replayLogLoad, tileSpritesLoad, evaluatorLoad)
+                .whenComplete((result, e) -> loader.shutdown());
     }
-    
-    // Creates and sets up game window and game display.
-    private static void launchGame() {
+
+    // Creates game window while the font loads, and shows the home screen once it has.
+    private static void launchGame(CompletableFuture<Font> fontLoad, long start) {
+        Metrics.startEdtProbe();
         JFrame gameWindow = new JFrame();
-        Font gameFont = createGameFont();
-        ScoreBoard scoreBoard = new ScoreBoard(gameFont);
-        GameBoard gameBoard = new GameBoard(scoreBoard, gameFont);
         setUpFrame(gameWindow);
-        setUpHomeScreen(gameWindow, gameBoard, scoreBoard, gameFont);        
+        Executor edt = SwingUtilities::invokeLater;
+        fontLoad.thenAcceptAsync(gameFont -> {
+            setUpHomeScreen(gameWindow, null, gameFont);
+            // Runs after the events that paint the home screen.
+            SwingUtilities.invokeLater(() -> Metrics.record(Metrics.Metric.STARTUP, start));
+        }, edt);
+    }
+
+    // Opens the score store and indexes its leaderboard so that the score board has it ready.
+    private static ScoreWriter openScores() {
+        ScoreWriter scoreWriter = ScoreBoard.openDefaultScoreWriter();
+        if (scoreWriter != null) {
+            try {
+                scoreWriter.getStore().getHistory();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return scoreWriter;
+    }
+
+    // Renders every tile sprite with given font.
+    private static TileSprites renderSprites(Font gameFont) {
+        TileSprites tileSprites = new TileSprites(gameFont, GameBoard.TILE_SIZE);
+        tileSprites.renderAll();
+        return tileSprites;
+    }
+
+    // Prints why a startup load failed and returns null in place of what it would have loaded.
+    private static <T> T loadFailed(Throwable e) {
+        e.printStackTrace();
+        return null;
+    }
+
+    // Returns a new game board connected to given score board, using the sprites rendered at startup, or sprites
+    // rendered as tiles first appear if that failed. Only called once startup loading has finished, so it never
+    // waits.
+    private static GameBoard createGameBoard(ScoreBoard scoreBoard, Font gameFont) {
+        if (replayLog == null) {
+            replayLog = replayLogLoad.join();
+        }
+        TileSprites tileSprites = tileSpritesLoad.join();
+        return tileSprites != null ? new GameBoard(scoreBoard, gameFont, tileSprites)
+                : new GameBoard(scoreBoard, gameFont);
     }
 
     // Creates game font from font file.
@@ -50,6 +135,16 @@ public class GameLauncher {
         return null;
     }
 
+    // Opens the log that replays of finished games are added to.
+    private static ReplayLog openReplayLog() {
+        try {
+            return new ReplayLog(new File(REPLAYS_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     // Sets up window JFrame and centers it in middle of screen.
     private static void setUpFrame(JFrame gameWindow) {
         gameWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -61,8 +156,9 @@ public class GameLauncher {
         gameWindow.setLocation(xPos, yPos);
     }
 
-    // Sets up starting screen. Pressing play button begins game.
-    private static void setUpHomeScreen(JFrame gameWindow, GameBoard gameBoard, ScoreBoard scoreBoard, Font gameFont) {
+    // Sets up starting screen. Pressing play button begins game. The score board is created on the first game,
+    // when given score board is null.
+    private static void setUpHomeScreen(JFrame gameWindow, ScoreBoard scoreBoard, Font gameFont) {
         final int TILE_X_VALUE_BUTTON = 250;
         final int TILE_Y_VALUE_BUTTON = 475;
 
@@ -77,12 +173,26 @@ public class GameLauncher {
         homeScreen.add(new Logo(gameFont));
         homeScreen.add(new Button(gameFont, "PLAY", TILE_X_VALUE_BUTTON, TILE_Y_VALUE_BUTTON));
 
-        // GameBoard appears once button is pressed.
+        // GameBoard appears once button is pressed and startup loading has finished. The home screen stays up until
+        // then, so the event dispatch thread never waits for the loaders. Failed loads leave null, so the score
+        // board goes without saved scores and the game board renders its own sprites. If setting up the game fails
+        // anyway, the button works again.
         JButton start = new JButton();
         setUpStartButton(start, TILE_X_VALUE_BUTTON, TILE_Y_VALUE_BUTTON);
         start.addActionListener(e -> {
-            gameWindow.remove(homeScreen);
-            setUpGame(gameWindow, gameBoard, scoreBoard, gameFont);
+            start.setEnabled(false);
+            CompletableFuture.allOf(scoreWriterLoad, replayLogLoad, tileSpritesLoad).thenRunAsync(() -> {
+                ScoreBoard gameScoreBoard = scoreBoard != null ? scoreBoard
+                        : new ScoreBoard(gameFont, scoreWriterLoad.join());
+                GameBoard gameBoard = createGameBoard(gameScoreBoard, gameFont);
+                gameWindow.remove(homeScreen);
+                setUpGame(gameWindow, gameBoard, gameScoreBoard, gameFont);
+            }, SwingUtilities::invokeLater).exceptionally(error -> {
+                // Runs on the event dispatch thread, where setting up the game failed.
+                error.printStackTrace();
+                start.setEnabled(true);
+                return null;
+            });
         });
 
         homeScreen.add(start);
@@ -131,7 +241,12 @@ public class GameLauncher {
         gameWindow.add(panels[2], BorderLayout.SOUTH);
     }
 
-    // Adds key listener to game window. Pressed arrow keys swipe the game board in corresponding direction.
+    // Adds key listener to game window. Pressed arrow keys swipe the game board in corresponding direction, and
+    // keys pressed while a move animates are queued rather than lost.
+    // Pressing A toggles the expectimax player, which swipes the board whenever the previous move has finished.
+    // The player searches with a time limit on a background thread, and its move is made on the event dispatch
+    // thread if the board has not changed meanwhile. Ticks that come while a search runs are skipped. Pressing Z
+    // undoes the last move and Y redoes it.
     private static void moveBoard(JFrame gameWindow, GameBoard gameBoard, ScoreBoard scoreBoard, Font gameFont) {
         gameWindow.setFocusable(true);
         gameWindow.requestFocus();
@@ -139,26 +254,87 @@ public class GameLauncher {
         final int DOWN_ARROW = 40;
         final int LEFT_ARROW = 37;
         final int RIGHT_ARROW = 39;
-        gameWindow.addKeyListener(new KeyAdapter() {
+        final int A_KEY = 65;
+        final int H_KEY = 72;
+        final int M_KEY = 77;
+        final int Y_KEY = 89;
+        final int Z_KEY = 90;
+        final int AUTO_PLAY_DELAY = 10;
+        final long AUTO_PLAY_THINKING_TIME = 40;
+        ExpectimaxPlayer player = new ExpectimaxPlayer();
+        Timer autoPlay = new Timer(AUTO_PLAY_DELAY, null);
+        // Whether a search is running, only read and written on the event dispatch thread.
+        boolean[] searching = new boolean[1];
+        KeyAdapter keyListener = new KeyAdapter() {
             public void keyReleased(KeyEvent e) {
-                if (!gameBoard.moveInProgress()) {
-                    if (e.getKeyCode() == UP_ARROW) {
-                        gameBoard.swipeUp();
-                    } else if (e.getKeyCode() == DOWN_ARROW) {
-                        gameBoard.swipeDown();
-                    } else if (e.getKeyCode() == LEFT_ARROW) {
-                        gameBoard.swipeLeft();
-                    } else if (e.getKeyCode() == RIGHT_ARROW) {
-                        gameBoard.swipeRight();
+                if (e.getKeyCode() == A_KEY) {
+                    if (autoPlay.isRunning()) {
+                        autoPlay.stop();
+                    } else {
+                        autoPlay.start();
                     }
+                } else if (e.getKeyCode() == M_KEY) {
+                    Metrics.dump(System.out);
+                } else if (e.getKeyCode() == H_KEY) {
+                    gameBoard.setHintsEnabled(!gameBoard.hintsEnabled());
+                } else if (e.getKeyCode() == Z_KEY) {
+                    gameBoard.undo();
+                } else if (e.getKeyCode() == Y_KEY) {
+                    gameBoard.redo();
+                } else if (e.getKeyCode() == UP_ARROW) {
+                    gameBoard.queueSwipe(GameEngine.UP);
+                } else if (e.getKeyCode() == DOWN_ARROW) {
+                    gameBoard.queueSwipe(GameEngine.DOWN);
+                } else if (e.getKeyCode() == LEFT_ARROW) {
+                    gameBoard.queueSwipe(GameEngine.LEFT);
+                } else if (e.getKeyCode() == RIGHT_ARROW) {
+                    gameBoard.queueSwipe(GameEngine.RIGHT);
                 }
                 if (gameBoard.gameOver()) {
-                    ((JFrame) e.getSource()).removeKeyListener(this);
-                    scoreBoard.gameOver();
-                    setUpGameOverScreen(gameWindow, scoreBoard, gameFont);
+                    endGame(gameWindow, this, autoPlay, gameBoard, scoreBoard, gameFont);
                 }
             }
+        };
+        autoPlay.addActionListener(e -> {
+            if (!searching[0] && !gameBoard.moveInProgress() && gameBoard.queuedMoves() == 0
+                    && !gameBoard.gameOver()) {
+                long board = gameBoard.getBoard();
+                searching[0] = true;
+                AUTO_PLAY_SEARCH.execute(() -> {
+                    int move = -1;
+                    try {
+                        move = player.chooseMove(board, AUTO_PLAY_THINKING_TIME);
+                    } finally {
+                        int chosenMove = move;
+                        SwingUtilities.invokeLater(() -> {
+                            searching[0] = false;
+                            // The player may have stopped, or the board changed by undo or a key, while it searched.
+                            if (chosenMove >= 0 && autoPlay.isRunning() && gameBoard.getBoard() == board
+                                    && !gameBoard.moveInProgress() && gameBoard.queuedMoves() == 0) {
+                                gameBoard.swipe(chosenMove);
+                            }
+                        });
+                    }
+                });
+            }
+            if (gameBoard.gameOver()) {
+                endGame(gameWindow, keyListener, autoPlay, gameBoard, scoreBoard, gameFont);
+            }
         });
+        gameWindow.addKeyListener(keyListener);
+    }
+
+    // Stops all input to the finished game, records the score and replay and shows the game over screen.
+    private static void endGame(JFrame gameWindow, KeyAdapter keyListener, Timer autoPlay, GameBoard gameBoard,
+            ScoreBoard scoreBoard, Font gameFont) {
+        autoPlay.stop();
+        gameBoard.setHintsEnabled(false);
+        gameWindow.removeKeyListener(keyListener);
+        scoreBoard.gameOver(GameEngine.maxExponent(gameBoard.getBoard()));
+        if (replayLog != null) {
+            replayLog.submit(gameBoard.getReplay());
+        }
+        setUpGameOverScreen(gameWindow, scoreBoard, gameFont);
     }
 
     // Sets up game over screen. Appears once player has lost.
@@ -185,7 +361,7 @@ public class GameLauncher {
         setUpStartButton(start, TILE_X_VALUE_BUTTON, TILE_Y_VALUE_BUTTON);
         start.addActionListener(e -> {
             gameWindow.remove(gameOverScreen);
-            setUpHomeScreen(gameWindow, new GameBoard(scoreBoard, gameFont), scoreBoard, gameFont);
+            setUpHomeScreen(gameWindow, scoreBoard, gameFont);
         });
 
         gameOverScreen.add(start);
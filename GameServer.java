@@ -0,0 +1,309 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hosts games of 2048 for clients on this machine over a line based socket protocol. Every connection is a session
+// with at most one game at a time, held in a GameSession rather than in Swing components, and served by its own
+// thread that blocks on the socket. Sessions share one ScoreWriter, which records every finished game.
+//
+// Session threads are virtual threads when the runtime has them, so tens of thousands of idle clients cost little
+// more than their sockets. Older runtimes fall back to a cached pool of platform threads with small stacks.
+//
+// Each command is one line of at most MAX_LINE_LENGTH characters, answered by one line starting with OK, or with
+// ERROR and a reason. A longer line is answered with ERROR and ends the session:
+//   NEW [seed]     starts a new game, abandoning any unfinished one       OK seed
+//   MOVE direction moves UP, DOWN, LEFT or RIGHT (or U, D, L, R, 0-3)      OK score [OVER], or ILLEGAL
+//   STATE          returns the board as 16 hex digits, one per cell       OK board score moves
+//   SCORE          returns the score and the best recorded score          OK score best
+//   QUIT           ends the session                                       BYE
+// A board is written cell by cell in reading order, the top row first and each row from left to right, and each
+// digit is the exponent of its cell's tile, 0 for empty, so 1 is a 2 and b is a 2048.
+//
+// Usage: java GameServer [port] [scores file]
+public class GameServer implements Closeable {
+
+    // Initialization of constants.
+    public static final int DEFAULT_PORT = 2048;
+    public static final int BACKLOG = 4096;
+    public static final int MAX_LINE_LENGTH = 256;
+    // Stack size of fallback platform threads. Sessions only parse lines and call GameEngine.
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+    // Socket buffers are kept small as a session only exchanges short lines.
+    private static final int BUFFER_SIZE = 512;
+    private static final String[] DIRECTION_NAMES = { "UP", "DOWN", "LEFT", "RIGHT" };
+
+    private final ServerSocket serverSocket;
+    private final ScoreWriter scoreWriter;
+    private final ExecutorService sessions;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final SplittableRandom seeds = new SplittableRandom();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong finishedGames = new AtomicLong();
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    // Constructs a server listening on given port of the loopback address that records finished games with given
+    // writer, which may be null. Port 0 picks a free port.
+    public GameServer(int port, ScoreWriter scoreWriter) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.scoreWriter = scoreWriter;
+        this.sessions = newSessionExecutor();
+    }
+
+    // Returns an executor that runs every task on a new virtual thread, or a cached pool of small platform threads
+    // if the runtime has no virtual threads. Looked up by reflection so the game still builds for older releases.
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task, "Session " + count.incrementAndGet(), SESSION_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    // Starts accepting clients on a background thread.
+    public void start() {
+        acceptor = new Thread(this::acceptClients, "Game server");
+        acceptor.start();
+    }
+
+    // Returns the port the server listens on.
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Returns the number of connected sessions.
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    // Returns the number of games finished since the server started.
+    public long getFinishedGames() {
+        return finishedGames.get();
+    }
+
+    // Stops accepting clients and disconnects every session. Games are not recorded until they are finished, so
+    // unfinished ones are dropped. The score writer stays open.
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        sessions.shutdown();
+        try {
+            if (acceptor != null) {
+                acceptor.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Accepts clients until the server is closed, handing each to a session thread.
+    private void acceptClients() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                sessions.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // Answers the commands of one client until it quits or disconnects.
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII), BUFFER_SIZE);
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                        StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+            GameSession game = null;
+            String line;
+            while ((line = readLine(in, out)) != null) {
+                if (line.length() > MAX_LINE_LENGTH) {
+                    out.write("ERROR line longer than " + MAX_LINE_LENGTH + " characters\n");
+                    break;
+                }
+                String[] words = line.trim().split("\\s+");
+                String command = words[0].toUpperCase();
+                if (command.equals("QUIT")) {
+                    out.write("BYE\n");
+                    break;
+                }
+                if (command.equals("NEW")) {
+                    long seed = words.length > 1 ? parseSeed(words[1]) : newSeed();
+                    game = new GameSession(seed);
+                    out.write("OK " + seed + "\n");
+                } else if (game == null && !command.isEmpty()) {
+                    out.write("ERROR no game, send NEW first\n");
+                } else {
+                    out.write(answer(game, command, words) + "\n");
+                }
+            }
+            out.flush();
+        } catch (SocketException e) {
+            // Client disconnected or server closed.
+        } catch (IOException e) {
+            if (!closed) {
+                e.printStackTrace();
+            }
+        } finally {
+            openSockets.remove(socket);
+            closeQuietly(socket);
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    // Returns the next line from given reader without its line break, or null at the end of the stream. Stops
+    // reading one character past MAX_LINE_LENGTH, so a client that never ends its line cannot fill the heap.
+    // Flushes given writer before any read that may block, so replies already written reach the client before
+    // the session waits for more input, while replies to pipelined commands still share writes.
+    private static String readLine(BufferedReader in, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while (true) {
+            if (!in.ready()) {
+                out.flush();
+            }
+            c = in.read();
+            if (c < 0 || c == '\n') {
+                break;
+            }
+            line.append((char) c);
+            if (line.length() > MAX_LINE_LENGTH) {
+                return line.toString();
+            }
+        }
+        return c < 0 && line.length() == 0 ? null : line.toString();
+    }
+
+    // Returns the reply to a command other than NEW and QUIT about given game.
+    private String answer(GameSession game, String command, String[] words) {
+        switch (command) {
+            case "MOVE":
+                int direction = words.length > 1 ? parseDirection(words[1]) : -1;
+                if (direction < 0) {
+                    return "ERROR direction must be UP, DOWN, LEFT or RIGHT";
+                }
+                if (game.isOver() || !game.move(direction)) {
+                    return "ILLEGAL";
+                }
+                if (game.isOver()) {
+                    recordGame(game);
+                    return "OK " + game.getScore() + " OVER";
+                }
+                return "OK " + game.getScore();
+            case "STATE":
+                return "OK " + boardText(game.getBoard()) + " " + game.getScore() + " " + game.getMoves();
+            case "SCORE":
+                int best = scoreWriter == null ? game.getScore()
+                        : Math.max(game.getScore(), scoreWriter.getStore().getBestScore());
+                return "OK " + game.getScore() + " " + best;
+            case "":
+                return "ERROR empty command";
+            default:
+                return "ERROR unknown command " + command;
+        }
+    }
+
+    // Returns given board as one hex digit per cell, cell 0 first.
+    private static String boardText(long board) {
+        char[] digits = new char[GameEngine.NUM_CELLS];
+        for (int cell = 0; cell < GameEngine.NUM_CELLS; cell++) {
+            digits[cell] = Character.forDigit(GameEngine.getCell(board, cell), 16);
+        }
+        return new String(digits);
+    }
+
+    // Records given finished game.
+    private void recordGame(GameSession game) {
+        finishedGames.incrementAndGet();
+        if (scoreWriter != null) {
+            try {
+                scoreWriter.submit(game.getScore(), game.getMaxExponent(), System.currentTimeMillis());
+            } catch (IllegalStateException e) {
+                // The writer closed first while the process is shutting down.
+            }
+        }
+    }
+
+    // Returns the GameEngine direction named by given word, or -1 if it names none.
+    private static int parseDirection(String word) {
+        String name = word.toUpperCase();
+        for (int direction = 0; direction < DIRECTION_NAMES.length; direction++) {
+            if (DIRECTION_NAMES[direction].equals(name) || DIRECTION_NAMES[direction].substring(0, 1).equals(name)
+                    || Integer.toString(direction).equals(name)) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the seed written in given word, or a random one if it is not a number.
+    private long parseSeed(String word) {
+        try {
+            return Long.parseLong(word);
+        } catch (NumberFormatException e) {
+            return newSeed();
+        }
+    }
+
+    // Returns a seed for a new game. Sessions share the generator, which is not thread safe.
+    private synchronized long newSeed() {
+        return seeds.nextLong();
+    }
+
+    // Closes given socket, ignoring errors.
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    // Runs a server as described by the command line arguments until the process is stopped.
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        File scoresFile = new File(args.length > 1 ? args[1] : ScoreBoard.SCORES_FILE);
+        ScoreWriter scoreWriter = new ScoreWriter(ScoreStore.open(scoresFile));
+        GameServer server = new GameServer(port, scoreWriter);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Serving 2048 on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort() + ", recording scores in " + scoresFile);
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.SplittableRandom;
+
+// One game of 2048 held entirely in GameEngine values, with no display: the packed board, the score and the
+// generator that draws its spawns. A session costs a few dozen bytes, so a server can hold one per client without
+// any Swing components. A session is used by one thread at a time.
+public class GameSession {
+
+    private final long seed;
+    private final SplittableRandom random;
+    private long board;
+    private int score;
+    private int moves;
+    private int legalMoves;
+
+    // Starts a game whose spawns are drawn from a generator seeded with given seed.
+    public GameSession(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.board = GameEngine.newGame(random);
+        this.legalMoves = GameEngine.legalMoves(board);
+    }
+
+    // Moves in given GameEngine direction and spawns a tile. Returns false, leaving the game unchanged, if the
+    // move is not legal.
+    public boolean move(int direction) {
+        if (!GameEngine.isLegal(legalMoves, direction)) {
+            return false;
+        }
+        score += GameEngine.moveScore(board, direction);
+        board = GameEngine.spawnTile(GameEngine.move(board, direction), random);
+        legalMoves = GameEngine.legalMoves(board);
+        moves++;
+        return true;
+    }
+
+    // Returns whether no move is left.
+    public boolean isOver() {
+        return legalMoves == 0;
+    }
+
+    // Returns the seed spawns are drawn from.
+    public long getSeed() {
+        return seed;
+    }
+
+    // Returns the packed board.
+    public long getBoard() {
+        return board;
+    }
+
+    // Returns the score.
+    public int getScore() {
+        return score;
+    }
+
+    // Returns the number of moves made.
+    public int getMoves() {
+        return moves;
+    }
+
+    // Returns a mask of the legal directions, with bit d set if direction d is legal.
+    public int getLegalMoves() {
+        return legalMoves;
+    }
+
+    // Returns the exponent of the largest tile.
+    public int getMaxExponent() {
+        return GameEngine.maxExponent(board);
+    }
+}
@@ -0,0 +1,23 @@
+// Moves in the legal direction that scores the most right away. Ties go to the move leaving more empty cells.
+public class GreedyPolicy implements MovePolicy {
+
+    // Returns the legal direction with the highest immediate score, or -1 if no move is legal.
+    public int chooseMove(long board) {
+        int legalMoves = GameEngine.legalMoves(board);
+        int bestMove = -1;
+        int bestScore = -1;
+        int bestEmpty = -1;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                int score = GameEngine.moveScore(board, direction);
+                int empty = GameEngine.countEmpty(GameEngine.move(board, direction));
+                if (score > bestScore || (score == bestScore && empty > bestEmpty)) {
+                    bestMove = direction;
+                    bestScore = score;
+                    bestEmpty = empty;
+                }
+            }
+        }
+        return bestMove;
+    }
+}
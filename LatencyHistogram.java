@@ -0,0 +1,123 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Counts durations in nanoseconds in log-linear buckets: every power of two is split into SUB_BUCKETS equal
+// buckets, so any recorded value is known to within about 6% while the whole range of a long fits in 1024 counts.
+// Recording is a few arithmetic instructions and one atomic increment, allocates nothing and is safe from any
+// thread.
+public class LatencyHistogram {
+
+    // Initialization of constants.
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // Constructs an empty histogram with given name.
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    // Returns the name of the histogram.
+    public String getName() {
+        return name;
+    }
+
+    // Counts one duration of given number of nanoseconds. Negative durations count as 0.
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    // Returns the number of durations counted.
+    public long getCount() {
+        return count.get();
+    }
+
+    // Returns the longest duration counted in nanoseconds.
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // Returns the mean duration in nanoseconds, or 0 if none was counted.
+    public double meanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) totalNanos.get() / n;
+    }
+
+    // Returns the smallest duration in nanoseconds that given percentage of counted durations are at or below,
+    // rounded up to the top of its bucket and capped at the longest duration.
+    public long percentileNanos(double percent) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    // Empties the histogram. Durations recorded at the same time may be partly kept.
+    public void reset() {
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    // Prints one line with the count, mean, percentiles and maximum in microseconds.
+    public void print(PrintStream out) {
+        out.printf("%-18s %9d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, getCount(), meanNanos() / NANOS_PER_MICRO,
+                percentileNanos(50) / NANOS_PER_MICRO, percentileNanos(90) / NANOS_PER_MICRO,
+                percentileNanos(99) / NANOS_PER_MICRO, getMaxNanos() / NANOS_PER_MICRO);
+    }
+
+    // Prints the header of the lines written by print.
+    public static void printHeader(PrintStream out) {
+        out.printf("%-18s %9s %10s %10s %10s %10s %10s%n", "(microseconds)", "count", "mean", "p50", "p90", "p99",
+                "max");
+    }
+
+    // Returns the bucket of given non-negative duration. Values below SUB_BUCKETS have a bucket each, and each
+    // power of two above is split by the SUB_BUCKET_BITS bits below its top bit.
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int topBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (topBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (topBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Returns the largest duration that falls in given bucket.
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int topBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (topBit - SUB_BUCKET_BITS);
+        long lowerBound = (1L << topBit) + (bucket % SUB_BUCKETS) * width;
+        return lowerBound + width - 1;
+    }
+}
@@ -13,35 +13,41 @@ public class Logo extends JLabel {
 
     // Initialization of constants.
     public static final int LOGO_LENGTH = 250;
+    public static final Color BACKGROUND_COLOR = new Color(238, 194, 46);
+    public static final Color FONT_COLOR = new Color(250, 247, 241);
 
-    private Font gameFont;
+    private static final float FONT_SIZE = 85;
+
+    private Font logoFont;
+    // Position of the logo text, measured on first paint.
+    private int fontXValue = -1;
+    private int fontYValue;
 
     // Constructs a new logo with given font.
     public Logo(Font gameFont) {
         setPreferredSize(new Dimension(LOGO_LENGTH, LOGO_LENGTH));
         setBounds(250, 175, LOGO_LENGTH, LOGO_LENGTH);
-        this.gameFont = gameFont;
+        this.logoFont = gameFont.deriveFont(FONT_SIZE);
     }
 
     // Draws the logo with its tile and text.
     public void paint(Graphics g) {
-        final Color BACKGROUND_COLOR = new Color(238, 194, 46);
-        final Color FONT_COLOR = new Color(250, 247, 241);
-
         g.setColor(BACKGROUND_COLOR);
         g.fillRoundRect(0, 0, LOGO_LENGTH, LOGO_LENGTH, 10, 10);
         g.setColor(FONT_COLOR);
-        g.setFont(gameFont.deriveFont(85f));
-        drawCenteredText(g, "2048", 0, 0);
+        g.setFont(logoFont);
+        if (fontXValue < 0) {
+            centerText(g, "2048", 0, 0);
+        }
+        g.drawString("2048", fontXValue, fontYValue);
     }
 
-    // Draws text in center of logo tile.
-    private void drawCenteredText(Graphics g, String textDisplay, int rectXValue, int rectYValue) {
+    // Measures where text goes to be in center of logo tile.
+    private void centerText(Graphics g, String textDisplay, int rectXValue, int rectYValue) {
         Graphics2D g2d = (Graphics2D) g;
         FontMetrics fm = g2d.getFontMetrics();
         Rectangle2D r = fm.getStringBounds(textDisplay, g2d);
-        int fontXValue = (rectXValue + LOGO_LENGTH / 2) - (int) (r.getWidth() / 2);
-        int fontYValue = (rectYValue + LOGO_LENGTH / 2) - (int) (fm.getHeight() / 2) + fm.getAscent();
-        g.drawString(textDisplay, fontXValue, fontYValue);
+        fontXValue = (rectXValue + LOGO_LENGTH / 2) - (int) (r.getWidth() / 2);
+        fontYValue = (rectYValue + LOGO_LENGTH / 2) - (int) (fm.getHeight() / 2) + fm.getAscent();
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for one measurement taken by Metrics, named by its Metrics.Metric. Events are only written
+// while a recording runs, for example one started with -XX:StartFlightRecording.
+@Name("game2048.Metric")
+@Label("Game Metric")
+@Category("2048")
+@Description("Duration of a swipe phase, a paint, a game over check, an event dispatch thread delay or score I/O")
+@StackTrace(false)
+public class MetricEvent extends Event {
+
+    @Label("Metric")
+    String metric;
+
+    @Label("Measured Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+}
@@ -0,0 +1,145 @@
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import jdk.jfr.EventType;
+import javax.swing.SwingUtilities;
+
+// Latency measurements of the game, kept in one LatencyHistogram per Metric and sent as MetricEvent to Flight
+// Recorder. Measuring is off unless the JVM runs with -Dmetrics=true. The switch is a static final field, so when
+// it is off the JIT removes every measurement and the game pays nothing. When it is on, a measurement is two clock
+// reads and a histogram update, and allocates nothing unless a Flight Recorder recording takes MetricEvents.
+//
+// Measurements are taken as:
+//   long start = Metrics.start();
+//   ...
+//   Metrics.record(Metrics.Metric.BOARD_PAINT, start);
+public final class Metrics {
+
+    // Things that are measured.
+    public enum Metric {
+        // Engine move and tile targets computed by a swipe.
+        SWIPE_MOVE("Swipe move"),
+        // Animation of a swipe from its first frame to its spawned tile being full size.
+        SWIPE_ANIMATION("Swipe animation"),
+        // Whole swipe, from the key press to the turn completing in actionPerformed.
+        SWIPE_TOTAL("Swipe total"),
+        BOARD_PAINT("Board paint"),
+        SCORE_PAINT("Score paint"),
+        GAME_OVER_CHECK("Game over check"),
+        // Time a task waits in the event queue before the event dispatch thread runs it.
+        EDT_DELAY("EDT delay"),
+        SCORE_WRITE("Score write"),
+        SCORE_SYNC("Score sync"),
+        // Time from the launcher starting to the home screen being painted.
+        STARTUP("Startup");
+
+        private final String label;
+
+        // Constructs a metric with given label.
+        Metric(String label) {
+            this.label = label;
+        }
+
+        // Returns the name the metric is reported under.
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Initialization of constants.
+    public static final boolean ENABLED = Boolean.getBoolean("metrics");
+    public static final long EDT_PROBE_INTERVAL_MILLIS = 100;
+
+    private static final LatencyHistogram[] HISTOGRAMS = createHistograms();
+    // Tells whether a recording takes MetricEvents without creating one. Null if measuring is off.
+    private static final EventType METRIC_EVENT_TYPE = ENABLED ? EventType.getEventType(MetricEvent.class) : null;
+    private static Thread edtProbe;
+
+    private Metrics() {
+    }
+
+    // Returns the time a measurement starts, or 0 if measuring is off.
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Records the time since given start of a measurement under given metric.
+    public static void record(Metric metric, long start) {
+        if (ENABLED) {
+            recordNanos(metric, System.nanoTime() - start);
+        }
+    }
+
+    // Records given duration in nanoseconds under given metric.
+    public static void recordNanos(Metric metric, long nanos) {
+        if (!ENABLED) {
+            return;
+        }
+        HISTOGRAMS[metric.ordinal()].record(nanos);
+        if (METRIC_EVENT_TYPE.isEnabled()) {
+            MetricEvent event = new MetricEvent();
+            event.metric = metric.label;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    // Returns the histogram of given metric.
+    public static LatencyHistogram histogram(Metric metric) {
+        return HISTOGRAMS[metric.ordinal()];
+    }
+
+    // Prints every metric that has been measured.
+    public static void dump(PrintStream out) {
+        LatencyHistogram.printHeader(out);
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            if (histogram.getCount() > 0) {
+                histogram.print(out);
+            }
+        }
+    }
+
+    // Empties every histogram.
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    // Starts a daemon thread that measures how long a task waits for the event dispatch thread, several times a
+    // second, if measuring is on. Long delays are stalls that freeze input and animation.
+    public static synchronized void startEdtProbe() {
+        if (!ENABLED || edtProbe != null) {
+            return;
+        }
+        edtProbe = new Thread(Metrics::probeEdt, "EDT probe");
+        edtProbe.setDaemon(true);
+        edtProbe.start();
+    }
+
+    // Runs on the probe thread. Posts a task to the event dispatch thread and records how long it took to run.
+    private static void probeEdt() {
+        long[] posted = new long[1];
+        Runnable probe = () -> recordNanos(Metric.EDT_DELAY, System.nanoTime() - posted[0]);
+        while (true) {
+            try {
+                posted[0] = System.nanoTime();
+                SwingUtilities.invokeAndWait(probe);
+                Thread.sleep(EDT_PROBE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Returns one empty histogram per metric, in metric order.
+    private static LatencyHistogram[] createHistograms() {
+        Metric[] metrics = Metric.values();
+        LatencyHistogram[] histograms = new LatencyHistogram[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            histograms[i] = new LatencyHistogram(metrics[i].label);
+        }
+        return histograms;
+    }
+}
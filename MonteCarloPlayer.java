@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Chooses moves by random playouts over packed GameEngine boards. Every legal direction is played out to the end
+// of the game again and again with random legal moves until the time for the move runs out, and the direction
+// whose playouts scored the most points on average wins. No heuristic is involved, only the game's own score.
+//
+// Playouts run a batch at a time. A batch keeps its boards and scores in plain arrays and advances every live game
+// by one move per pass: one loop finds the legal moves of every board, one drops the games that ended, and one
+// makes a move on every board left, so each loop is short, free of calls it cannot inline and easy for the JIT to
+// unroll. With a ForkJoinPool one worker per thread of the pool plays batches of every direction in turn, and
+// their totals are added up at the end. Without a pool everything runs on the calling thread. A player must not
+// be asked for two moves at once.
+public class MonteCarloPlayer implements MovePolicy {
+
+    // Initialization of constants.
+    public static final long DEFAULT_MILLIS = 100;
+    public static final int BATCH_SIZE = 32;
+
+    private final long millisPerMove;
+    private final ForkJoinPool pool;
+    private final SplittableRandom random;
+    private final LongAdder rollouts;
+    private final LongAdder rolloutMoves;
+    private long searchNanos;
+
+    // Constructs a player that thinks for the default time per move on the common ForkJoinPool.
+    public MonteCarloPlayer() {
+        this(DEFAULT_MILLIS, ForkJoinPool.commonPool());
+    }
+
+    // Constructs a player that thinks for given number of milliseconds per move, splitting its playouts across
+    // given pool. A null pool plays out on the calling thread.
+    public MonteCarloPlayer(long millisPerMove, ForkJoinPool pool) {
+        this(millisPerMove, pool, new SplittableRandom());
+    }
+
+    // Constructs a player like above whose playouts draw from given generator, so that they can be repeated.
+    public MonteCarloPlayer(long millisPerMove, ForkJoinPool pool, SplittableRandom random) {
+        this.millisPerMove = millisPerMove;
+        this.pool = pool;
+        this.random = random;
+        this.rollouts = new LongAdder();
+        this.rolloutMoves = new LongAdder();
+    }
+
+    // Returns the GameEngine direction with the best average playout within the player's time per move, or -1
+    // if no move is legal.
+    public int chooseMove(long board) {
+        return chooseMove(board, millisPerMove);
+    }
+
+    // Returns the GameEngine direction with the best average playout within given number of milliseconds, or -1
+    // if no move is legal. Every legal direction gets at least one batch of playouts however short the time.
+    public int chooseMove(long board, long millis) {
+        int legalMoves = GameEngine.legalMoves(board);
+        if (Integer.bitCount(legalMoves) <= 1) {
+            return legalMoves == 0 ? -1 : Integer.numberOfTrailingZeros(legalMoves);
+        }
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        List<Worker> workers = new ArrayList<>();
+        int numWorkers = pool == null ? 1 : pool.getParallelism();
+        for (int i = 0; i < numWorkers; i++) {
+            workers.add(new Worker(board, legalMoves, deadline, random.split()));
+        }
+        if (pool == null) {
+            workers.get(0).compute();
+        } else if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(workers);
+        } else {
+            pool.submit(() -> ForkJoinTask.invokeAll(workers)).join();
+        }
+        long[] points = new long[GameEngine.NUM_DIRECTIONS];
+        long[] playouts = new long[GameEngine.NUM_DIRECTIONS];
+        for (Worker worker : workers) {
+            for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+                points[direction] += worker.points[direction];
+                playouts[direction] += worker.playouts[direction];
+            }
+            rollouts.add(worker.rollouts);
+            rolloutMoves.add(worker.moves);
+        }
+        int bestMove = -1;
+        double bestAverage = Double.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                double average = (double) points[direction] / playouts[direction];
+                if (average > bestAverage) {
+                    bestMove = direction;
+                    bestAverage = average;
+                }
+            }
+        }
+        searchNanos += System.nanoTime() - start;
+        return bestMove;
+    }
+
+    // Returns the number of playouts finished by all moves so far.
+    public long getRollouts() {
+        return rollouts.sum();
+    }
+
+    // Returns the number of playouts finished per second of thinking so far.
+    public double rolloutsPerSecond() {
+        return searchNanos == 0 ? 0 : rollouts.sum() * 1e9 / searchNanos;
+    }
+
+    // Returns the number of moves made in playouts per second of thinking so far.
+    public double rolloutMovesPerSecond() {
+        return searchNanos == 0 ? 0 : rolloutMoves.sum() * 1e9 / searchNanos;
+    }
+
+    // Plays one game without any display and prints the result. Optional argument is the time per move in
+    // milliseconds.
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_MILLIS;
+        MonteCarloPlayer player = new MonteCarloPlayer(millis, ForkJoinPool.commonPool());
+        long board = GameEngine.newGame();
+        int score = 0;
+        int moves = 0;
+        int move = player.chooseMove(board);
+        while (move >= 0) {
+            score += GameEngine.moveScore(board, move);
+            board = GameEngine.spawnTile(GameEngine.move(board, move));
+            moves++;
+            move = player.chooseMove(board);
+        }
+        System.out.println("Score: " + score);
+        System.out.println("Max tile: " + GameEngine.tileValue(GameEngine.maxExponent(board)));
+        System.out.println("Moves: " + moves);
+        System.out.printf("Rollouts per second: %.0f%n", player.rolloutsPerSecond());
+        System.out.printf("Rollout moves per second: %.0f%n", player.rolloutMovesPerSecond());
+    }
+
+    // Plays batches of every legal direction in turn until the deadline, keeping its own totals and generator so
+    // that workers share nothing while they run.
+    private static final class Worker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int legalMoves;
+        private final long deadline;
+        private final SplittableRandom random;
+        private final long[] boards = new long[BATCH_SIZE];
+        private final int[] scores = new int[BATCH_SIZE];
+        private final int[] legal = new int[BATCH_SIZE];
+        private final long[] points = new long[GameEngine.NUM_DIRECTIONS];
+        private final long[] playouts = new long[GameEngine.NUM_DIRECTIONS];
+        private long rollouts;
+        private long moves;
+
+        // Constructs a worker for given board and its legal moves that stops at given System.nanoTime deadline.
+        private Worker(long board, int legalMoves, long deadline, SplittableRandom random) {
+            this.board = board;
+            this.legalMoves = legalMoves;
+            this.deadline = deadline;
+            this.random = random;
+        }
+
+        // Plays a batch of every legal direction, then again, until the deadline passes after a full round.
+        protected void compute() {
+            do {
+                for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+                    if (GameEngine.isLegal(legalMoves, direction)) {
+                        points[direction] += playBatch(direction);
+                        playouts[direction] += BATCH_SIZE;
+                    }
+                }
+            } while (System.nanoTime() - deadline < 0);
+        }
+
+        // Plays BATCH_SIZE games from the board moved in given direction to the end and returns the sum of
+        // their final scores, counting the points of the first move.
+        private long playBatch(int direction) {
+            long moved = GameEngine.move(board, direction);
+            int firstScore = GameEngine.moveScore(board, direction);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                boards[i] = GameEngine.spawnTile(moved, random);
+                scores[i] = firstScore;
+            }
+            long total = 0;
+            int live = BATCH_SIZE;
+            while (live > 0) {
+                for (int i = 0; i < live; i++) {
+                    legal[i] = GameEngine.legalMoves(boards[i]);
+                }
+                // Swaps each finished game with the last live one, so live games stay at the front.
+                for (int i = live - 1; i >= 0; i--) {
+                    if (legal[i] == 0) {
+                        total += scores[i];
+                        live--;
+                        boards[i] = boards[live];
+                        scores[i] = scores[live];
+                        legal[i] = legal[live];
+                    }
+                }
+                for (int i = 0; i < live; i++) {
+                    int move = randomMove(legal[i]);
+                    scores[i] += GameEngine.moveScore(boards[i], move);
+                    boards[i] = GameEngine.spawnTile(GameEngine.move(boards[i], move), random);
+                }
+                moves += live;
+            }
+            rollouts += BATCH_SIZE;
+            return total;
+        }
+
+        // Returns a random direction from given non-empty mask of legal moves.
+        private int randomMove(int legalMoves) {
+            int choice = random.nextInt(Integer.bitCount(legalMoves));
+            for (int i = 0; i < choice; i++) {
+                legalMoves &= legalMoves - 1;
+            }
+            return Integer.numberOfTrailingZeros(legalMoves);
+        }
+    }
+}
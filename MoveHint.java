@@ -0,0 +1,178 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+// Suggests a move for a board by searching in the background. A search looks one move ahead, then one more, up to
+// MAX_DEPTH, and reports its best direction and the points that direction is expected to gain over the moves
+// looked at after each depth finishes, so the suggestion improves while the player thinks. Expected points come
+// from an expectimax search over GameEngine boards that averages over every spawn.
+//
+// Searches run one at a time on a single low priority daemon thread. Starting a new search or cancelling
+// interrupts the one running, which gives up within a few thousand nodes, so no caller ever waits for a search.
+// Results are delivered on the event dispatch thread.
+public class MoveHint {
+
+    // Initialization of constants.
+    public static final int MAX_DEPTH = 5;
+
+    private static final double COMMON_PROBABILITY = 1 - GameEngine.RARE_STARTING_PROBABILITY;
+    private static final int TABLE_SIZE_BITS = 18;
+    // Number of nodes between checks for cancellation.
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final Consumer<Result> listener;
+    private final ExecutorService executor;
+    private final TranspositionTable transpositionTable;
+    private Future<?> search;
+    private int nodesUntilCheck;
+
+    // Constructs a hint that passes every result it finds to given listener on the event dispatch thread.
+    public MoveHint(Consumer<Result> listener) {
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "Move hint");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.transpositionTable = new TranspositionTable(TABLE_SIZE_BITS);
+    }
+
+    // Cancels any running search and starts searching given board.
+    public synchronized void search(long board) {
+        cancel();
+        search = executor.submit(() -> deepen(board));
+    }
+
+    // Cancels the running search, if any, without waiting for it to stop.
+    public synchronized void cancel() {
+        if (search != null) {
+            search.cancel(true);
+            search = null;
+        }
+    }
+
+    // Cancels the running search and stops the search thread.
+    public synchronized void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    // Searches given board deeper and deeper, reporting after every depth, until MAX_DEPTH or cancellation.
+    private void deepen(long board) {
+        try {
+            for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+                transpositionTable.newSearch();
+                Result result = searchRoot(board, depth);
+                if (result == null) {
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> listener.accept(result));
+            }
+        } catch (CancellationException e) {
+            // A newer board replaced this one.
+        }
+    }
+
+    // Returns the legal direction of given board that gains the most points over given number of moves, or null
+    // if no move is legal.
+    private Result searchRoot(long board, int depth) {
+        int legalMoves = GameEngine.legalMoves(board);
+        int bestMove = -1;
+        double bestPoints = Double.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                double points = GameEngine.moveScore(board, direction)
+                        + chanceNode(GameEngine.move(board, direction), depth);
+                if (points > bestPoints) {
+                    bestMove = direction;
+                    bestPoints = points;
+                }
+            }
+        }
+        return bestMove < 0 ? null : new Result(board, bestMove, bestPoints, depth);
+    }
+
+    // Returns the points expected from given board, where the player is about to move, with given moves left.
+    private double maxNode(long board, int depthLeft) {
+        if (--nodesUntilCheck <= 0) {
+            nodesUntilCheck = CANCEL_CHECK_INTERVAL;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+        }
+        if (depthLeft == 0) {
+            return 0;
+        }
+        int legalMoves = GameEngine.legalMoves(board);
+        double best = 0;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                best = Math.max(best, GameEngine.moveScore(board, direction)
+                        + chanceNode(GameEngine.move(board, direction), depthLeft));
+            }
+        }
+        return best;
+    }
+
+    // Returns the points expected from given board, where a tile is about to spawn, with given moves left
+    // including the one just made.
+    private double chanceNode(long board, int depthLeft) {
+        double cached = transpositionTable.get(board, depthLeft);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+        int emptyMask = GameEngine.emptyMask(board);
+        double total = 0;
+        for (int mask = emptyMask; mask != 0; mask &= mask - 1) {
+            int cell = Integer.numberOfTrailingZeros(mask);
+            total += COMMON_PROBABILITY * maxNode(
+                    GameEngine.setCell(board, cell, GameEngine.COMMON_STARTING_EXPONENT), depthLeft - 1);
+            total += GameEngine.RARE_STARTING_PROBABILITY * maxNode(
+                    GameEngine.setCell(board, cell, GameEngine.RARE_STARTING_EXPONENT), depthLeft - 1);
+        }
+        double points = total / Integer.bitCount(emptyMask);
+        transpositionTable.put(board, depthLeft, points);
+        return points;
+    }
+
+    // Suggested move for one board, found by a search of some depth.
+    public static final class Result {
+
+        private final long board;
+        private final int direction;
+        private final double expectedPoints;
+        private final int depth;
+
+        // Constructs the result of searching given board to given depth.
+        private Result(long board, int direction, double expectedPoints, int depth) {
+            this.board = board;
+            this.direction = direction;
+            this.expectedPoints = expectedPoints;
+            this.depth = depth;
+        }
+
+        // Returns the board that was searched.
+        public long getBoard() {
+            return board;
+        }
+
+        // Returns the suggested GameEngine direction.
+        public int getDirection() {
+            return direction;
+        }
+
+        // Returns the points the suggested direction is expected to gain over the moves searched.
+        public double getExpectedPoints() {
+            return expectedPoints;
+        }
+
+        // Returns the number of moves searched.
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+// Chooses moves for a game played on packed GameEngine boards.
+public interface MovePolicy {
+
+    // Returns the GameEngine direction to move given board in, or -1 if no move is legal.
+    int chooseMove(long board);
+}
@@ -0,0 +1,172 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Value function of packed GameEngine boards learned by an n-tuple network. Four tuples of six cells each look at
+// the board, and each tuple has a table of weights with one entry for every combination of exponents in its
+// cells. The value of a board is the sum of the weights its tuples select under all eight rotations and
+// reflections of the board, so a pattern learned in one corner is known in every corner.
+//
+// The tuples are two L shapes, each a whole row plus the first two cells of the next row, and two rectangles of
+// 2x3 cells: cells 0 1 2 3 4 5, cells 4 5 6 7 8 9, cells 0 1 2 4 5 6 and cells 4 5 6 8 9 10.
+// Their cells are next to each other in the packed board, so a tuple's index is one or two masked shifts.
+//
+// Each table has 16^6 floats, 64 MB, for 256 MB in all. Tables are plain arrays updated without locks by every
+// training thread. Two threads racing on the same weight may lose one update, which TD learning shrugs off.
+public class NTupleNetwork {
+
+    // Initialization of constants.
+    public static final int NUM_TUPLES = 4;
+    public static final int TUPLE_CELLS = 6;
+    public static final int TABLE_SIZE = 1 << (4 * TUPLE_CELLS);
+    public static final int NUM_SYMMETRIES = 8;
+    // Number of weights that add up to the value of one board.
+    public static final int NUM_FEATURES = NUM_TUPLES * NUM_SYMMETRIES;
+    public static final int MAGIC = 0x4E545550;
+
+    private static final long TUPLE_MASK = 0xFFFFFFL;
+    private static final long HALF_ROW_MASK = 0xFFFL;
+    private static final long HIGH_HALF_ROW_MASK = 0xFFF000L;
+    private static final int CHUNK_FLOATS = 1 << 20;
+
+    private final float[] lShape0;
+    private final float[] lShape1;
+    private final float[] rectangle0;
+    private final float[] rectangle1;
+
+    // Constructs a network with every weight 0.
+    public NTupleNetwork() {
+        lShape0 = new float[TABLE_SIZE];
+        lShape1 = new float[TABLE_SIZE];
+        rectangle0 = new float[TABLE_SIZE];
+        rectangle1 = new float[TABLE_SIZE];
+    }
+
+    // Returns the learned value of given board, which estimates the score still to be gained from it.
+    public float value(long board) {
+        long flipped = flipRows(board);
+        long mirrored = mirrorRows(board);
+        long turned = mirrorRows(flipped);
+        return valueOf(board) + valueOf(flipped) + valueOf(mirrored) + valueOf(turned)
+                + valueOf(GameEngine.transpose(board)) + valueOf(GameEngine.transpose(flipped))
+                + valueOf(GameEngine.transpose(mirrored)) + valueOf(GameEngine.transpose(turned));
+    }
+
+    // Adds given amount to every weight that makes up the value of given board.
+    public void update(long board, float delta) {
+        long flipped = flipRows(board);
+        long mirrored = mirrorRows(board);
+        long turned = mirrorRows(flipped);
+        updateOf(board, delta);
+        updateOf(flipped, delta);
+        updateOf(mirrored, delta);
+        updateOf(turned, delta);
+        updateOf(GameEngine.transpose(board), delta);
+        updateOf(GameEngine.transpose(flipped), delta);
+        updateOf(GameEngine.transpose(mirrored), delta);
+        updateOf(GameEngine.transpose(turned), delta);
+    }
+
+    // Returns the bytes taken by the weight tables.
+    public long footprintBytes() {
+        return (long) NUM_TUPLES * TABLE_SIZE * Float.BYTES;
+    }
+
+    // Returns the sum of the weights selected by the tuples of given board in one orientation.
+    private float valueOf(long board) {
+        return lShape0[(int) (board & TUPLE_MASK)] + lShape1[(int) (board >>> 16 & TUPLE_MASK)]
+                + rectangle0[rectangleIndex(board)] + rectangle1[rectangleIndex(board >>> 16)];
+    }
+
+    // Adds given amount to the weights selected by the tuples of given board in one orientation.
+    private void updateOf(long board, float delta) {
+        lShape0[(int) (board & TUPLE_MASK)] += delta;
+        lShape1[(int) (board >>> 16 & TUPLE_MASK)] += delta;
+        rectangle0[rectangleIndex(board)] += delta;
+        rectangle1[rectangleIndex(board >>> 16)] += delta;
+    }
+
+    // Returns the index of the 2x3 rectangle in the first three cells of the first two rows of given board.
+    private static int rectangleIndex(long board) {
+        return (int) ((board & HALF_ROW_MASK) | (board >>> 4 & HIGH_HALF_ROW_MASK));
+    }
+
+    // Returns given board with the order of its rows reversed.
+    private static long flipRows(long board) {
+        return (board >>> 48) | (board >>> 16 & 0xFFFF0000L) | (board << 16 & 0xFFFF00000000L) | (board << 48);
+    }
+
+    // Returns given board with the order of the cells in each row reversed.
+    private static long mirrorRows(long board) {
+        board = (board & 0xFF00FF00FF00FF00L) >>> 8 | (board & 0x00FF00FF00FF00FFL) << 8;
+        return (board & 0xF0F0F0F0F0F0F0F0L) >>> 4 | (board & 0x0F0F0F0F0F0F0F0FL) << 4;
+    }
+
+    // Writes the weights to given file, replacing it. They are written to a temporary file first, which is renamed
+    // over given file once complete, so a crash while saving leaves the previous weights intact.
+    public void save(File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+                FileChannel channel = output.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            header.putInt(MAGIC).putInt(NUM_TUPLES).putInt(TABLE_SIZE).flip();
+            channel.write(header);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_FLOATS * Float.BYTES);
+            for (float[] table : tables()) {
+                for (int offset = 0; offset < TABLE_SIZE; offset += CHUNK_FLOATS) {
+                    chunk.clear();
+                    chunk.asFloatBuffer().put(table, offset, CHUNK_FLOATS);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+            }
+            channel.force(false);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a network written by save from given file.
+    public static NTupleNetwork load(File file) throws IOException {
+        NTupleNetwork network = new NTupleNetwork();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            readFully(channel, header);
+            if (header.getInt() != MAGIC || header.getInt() != NUM_TUPLES || header.getInt() != TABLE_SIZE) {
+                throw new IOException("Not an n-tuple network file: " + file);
+            }
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_FLOATS * Float.BYTES);
+            for (float[] table : network.tables()) {
+                for (int offset = 0; offset < TABLE_SIZE; offset += CHUNK_FLOATS) {
+                    readFully(channel, chunk);
+                    FloatBuffer floats = chunk.asFloatBuffer();
+                    floats.get(table, offset, CHUNK_FLOATS);
+                }
+            }
+        }
+        return network;
+    }
+
+    // Returns the weight tables in file order.
+    private float[][] tables() {
+        return new float[][] { lShape0, lShape1, rectangle0, rectangle1 };
+    }
+
+    // Fills given buffer from given channel and flips it for reading.
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Network file is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
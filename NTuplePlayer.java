@@ -0,0 +1,81 @@
+// Chooses moves with a learned NTupleNetwork. At depth 0 the player is greedy: it takes the move whose score plus
+// the value of the board it leaves, before the spawn, is highest. Each extra level of depth averages over every
+// spawn first and looks one move further, which costs about a hundred times more per level. The network is only
+// read, so players on several threads can share one.
+public class NTuplePlayer implements MovePolicy {
+
+    // Initialization of constants.
+    public static final int MAX_DEPTH = 2;
+
+    private static final float COMMON_PROBABILITY = (float) (1 - GameEngine.RARE_STARTING_PROBABILITY);
+    private static final float RARE_PROBABILITY = (float) GameEngine.RARE_STARTING_PROBABILITY;
+
+    private final NTupleNetwork network;
+    private final int depth;
+
+    // Constructs a greedy player with given network.
+    public NTuplePlayer(NTupleNetwork network) {
+        this(network, 0);
+    }
+
+    // Constructs a player with given network that averages over spawns given number of times before judging.
+    public NTuplePlayer(NTupleNetwork network, int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be from 0 to " + MAX_DEPTH);
+        }
+        this.network = network;
+        this.depth = depth;
+    }
+
+    // Returns the GameEngine direction with the best score plus learned value, or -1 if no move is legal.
+    public int chooseMove(long board) {
+        int legalMoves = GameEngine.legalMoves(board);
+        int bestMove = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                float value = GameEngine.moveScore(board, direction)
+                        + afterstateValue(GameEngine.move(board, direction), depth);
+                if (value > bestValue) {
+                    bestMove = direction;
+                    bestValue = value;
+                }
+            }
+        }
+        return bestMove;
+    }
+
+    // Returns the expected value of given board after a move and before its spawn, looking given number of
+    // spawns ahead.
+    private float afterstateValue(long afterstate, int depth) {
+        if (depth == 0) {
+            return network.value(afterstate);
+        }
+        int emptyMask = GameEngine.emptyMask(afterstate);
+        float total = 0;
+        for (int mask = emptyMask; mask != 0; mask &= mask - 1) {
+            int cell = Integer.numberOfTrailingZeros(mask);
+            total += COMMON_PROBABILITY * bestValue(GameEngine.setCell(afterstate, cell,
+                    GameEngine.COMMON_STARTING_EXPONENT), depth - 1);
+            total += RARE_PROBABILITY * bestValue(GameEngine.setCell(afterstate, cell,
+                    GameEngine.RARE_STARTING_EXPONENT), depth - 1);
+        }
+        return total / Integer.bitCount(emptyMask);
+    }
+
+    // Returns the best score plus value over the legal moves of given board, or 0 if none is legal.
+    private float bestValue(long board, int depth) {
+        int legalMoves = GameEngine.legalMoves(board);
+        if (legalMoves == 0) {
+            return 0;
+        }
+        float best = Float.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+            if (GameEngine.isLegal(legalMoves, direction)) {
+                best = Math.max(best, GameEngine.moveScore(board, direction)
+                        + afterstateValue(GameEngine.move(board, direction), depth));
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Trains an NTupleNetwork by temporal difference learning from self play. Every game is played greedily with the
+// network being trained, as NTuplePlayer plays at depth 0. After each move the value of the previous board left by
+// a move, before its spawn, is pulled towards the score of the next move plus the value of the board that move
+// leaves, or towards 0 when the game ends.
+//
+// Training threads play their own games with their own generators and update the one shared network without locks.
+// Progress is reported after every round of games, and the weights are saved at the end. Training resumes from the
+// weights file if it exists. The JVM needs a heap a little over the network's footprint, 256 MB.
+//
+// Usage: java -Xmx1g NTupleTrainer [games] [threads] [weights file]
+public class NTupleTrainer {
+
+    // Initialization of constants.
+    public static final int DEFAULT_GAMES = 100_000;
+    public static final String DEFAULT_WEIGHTS_FILE = "NTuple.bin";
+    public static final float DEFAULT_LEARNING_RATE = 0.1f;
+    public static final int ROUND_GAMES = 1000;
+    // Games counted as won once they reach a tile of 2^11, 2048.
+    public static final int WINNING_EXPONENT = 11;
+
+    private final NTupleNetwork network;
+    // Step taken by each weight, the overall rate shared between the features of a board.
+    private final float weightRate;
+
+    // Constructs a trainer of given network that moves values given fraction of the way towards their targets.
+    public NTupleTrainer(NTupleNetwork network, float learningRate) {
+        this.network = network;
+        this.weightRate = learningRate / NTupleNetwork.NUM_FEATURES;
+    }
+
+    // Returns the network being trained.
+    public NTupleNetwork getNetwork() {
+        return network;
+    }
+
+    // Plays one game with spawns drawn from given generator, learning after every move. Returns the result.
+    public Round playGame(SplittableRandom random) {
+        long board = GameEngine.newGame(random);
+        int score = 0;
+        int moves = 0;
+        long afterstate = 0;
+        while (true) {
+            int legalMoves = GameEngine.legalMoves(board);
+            if (legalMoves == 0) {
+                break;
+            }
+            int bestMove = -1;
+            int bestScore = 0;
+            long bestAfterstate = 0;
+            float bestValue = Float.NEGATIVE_INFINITY;
+            for (int direction = 0; direction < GameEngine.NUM_DIRECTIONS; direction++) {
+                if (GameEngine.isLegal(legalMoves, direction)) {
+                    long moved = GameEngine.move(board, direction);
+                    int moveScore = GameEngine.moveScore(board, direction);
+                    float value = moveScore + network.value(moved);
+                    if (value > bestValue) {
+                        bestMove = direction;
+                        bestScore = moveScore;
+                        bestAfterstate = moved;
+                        bestValue = value;
+                    }
+                }
+            }
+            if (moves > 0) {
+                learn(afterstate, bestValue);
+            }
+            afterstate = bestAfterstate;
+            score += bestScore;
+            moves++;
+            board = GameEngine.spawnTile(afterstate, random);
+        }
+        if (moves > 0) {
+            learn(afterstate, 0);
+        }
+        Round result = new Round();
+        result.record(score, GameEngine.maxExponent(board), moves);
+        return result;
+    }
+
+    // Moves the value of given board after a move towards given target.
+    private void learn(long afterstate, float target) {
+        network.update(afterstate, weightRate * (target - network.value(afterstate)));
+    }
+
+    // Plays given number of games spread over given number of threads. Each thread gets its own generator split
+    // off the given one.
+    public Round train(int games, int threads, SplittableRandom random) throws InterruptedException,
+            ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Round>> batches = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int batchGames = games / threads + (thread < games % threads ? 1 : 0);
+                SplittableRandom batchRandom = random.split();
+                batches.add(executor.submit(() -> {
+                    Round round = new Round();
+                    for (int game = 0; game < batchGames; game++) {
+                        round.add(playGame(batchRandom));
+                    }
+                    return round;
+                }));
+            }
+            Round round = new Round();
+            for (Future<Round> batch : batches) {
+                round.add(batch.get());
+            }
+            return round;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Trains the network in the file given by the command line arguments and prints progress.
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        File file = new File(args.length > 2 ? args[2] : DEFAULT_WEIGHTS_FILE);
+        NTupleNetwork network = file.exists() ? NTupleNetwork.load(file) : new NTupleNetwork();
+        NTupleTrainer trainer = new NTupleTrainer(network, DEFAULT_LEARNING_RATE);
+        Long seed = Long.getLong("seed");
+        SplittableRandom random = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        System.out.printf("Training %d games on %d threads, network of %d MB%n", games, threads,
+                network.footprintBytes() >> 20);
+
+        long start = System.nanoTime();
+        for (int played = 0; played < games; played += ROUND_GAMES) {
+            long roundStart = System.nanoTime();
+            Round round = trainer.train(Math.min(ROUND_GAMES, games - played), threads, random);
+            double seconds = (System.nanoTime() - roundStart) / 1e9;
+            System.out.printf("%9d games: mean score %8.1f, max score %6d, reached 2048 %5.1f%%, %7.1f games/s,"
+                    + " %9.0f moves/s%n", played + round.games, (double) round.totalScore / round.games,
+                    round.maxScore, 100.0 * round.wins / round.games, round.games / seconds, round.moves / seconds);
+        }
+        System.out.printf("Trained in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        network.save(file);
+        System.out.println("Saved weights to " + file);
+    }
+
+    // Totals of a round of training games.
+    public static class Round {
+
+        private int games;
+        private long totalScore;
+        private int maxScore;
+        private long moves;
+        private int wins;
+
+        // Records one finished game.
+        private void record(int score, int maxExponent, int gameMoves) {
+            games++;
+            totalScore += score;
+            maxScore = Math.max(maxScore, score);
+            moves += gameMoves;
+            wins += maxExponent >= WINNING_EXPONENT ? 1 : 0;
+        }
+
+        // Adds the games of another round.
+        private void add(Round other) {
+            games += other.games;
+            totalScore += other.totalScore;
+            maxScore = Math.max(maxScore, other.maxScore);
+            moves += other.moves;
+            wins += other.wins;
+        }
+
+        // Returns the number of games.
+        public int getGames() {
+            return games;
+        }
+
+        // Returns the mean score.
+        public double meanScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+// Moves in a random legal direction.
+public class RandomPolicy implements MovePolicy {
+
+    // Returns a random legal direction, or -1 if no move is legal.
+    public int chooseMove(long board) {
+        int legalMoves = GameEngine.legalMoves(board);
+        if (legalMoves == 0) {
+            return -1;
+        }
+        int choice = ThreadLocalRandom.current().nextInt(Integer.bitCount(legalMoves));
+        for (int i = 0; i < choice; i++) {
+            legalMoves &= legalMoves - 1;
+        }
+        return Integer.numberOfTrailingZeros(legalMoves);
+    }
+}
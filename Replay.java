@@ -0,0 +1,204 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// A game of 2048 recorded compactly enough to keep millions of them. A replay holds the seed the game was played
+// with, the starting tiles and then one step per move: the direction in 2 bits, followed by the cell of the tile
+// spawned after it in 4 bits and whether that tile was a 4 in 1 bit. Steps are packed back to back, so a move
+// costs 7 bits instead of the 8 bytes of a board snapshot.
+//
+// Serialized form: seed (8 bytes), number of starting tiles (1 byte), number of moves (4 bytes), then the packed
+// bits of the starting tiles, 5 bits each, and of the steps, rounded up to whole bytes.
+public class Replay {
+
+    // Initialization of constants.
+    public static final long NO_SEED = 0;
+    // Every move spawns a tile of at least 2, so the sum of the tiles, which moves never lower, grows by at least
+    // 2 per move and no game lasts longer than half the largest possible sum.
+    public static final int MAX_MOVES = GameEngine.NUM_CELLS << (GameEngine.MAX_EXPONENT - 1);
+
+    private static final int MOVE_BITS = 2;
+    private static final int CELL_BITS = 4;
+    private static final int SPAWN_BITS = CELL_BITS + 1;
+    private static final int STEP_BITS = MOVE_BITS + SPAWN_BITS;
+    private static final int INITIAL_BYTES = 64;
+
+    private final long seed;
+    private final long startBoard;
+    private final int startTiles;
+    private byte[] bits;
+    private int bitLength;
+    private int moves;
+    // Board after the last recorded step, only used while recording.
+    private long board;
+
+    // Constructs an empty replay of a game that starts from given board, played with spawns drawn from given
+    // seed, or NO_SEED if they were not drawn from a seeded generator.
+    public Replay(long seed, long startBoard) {
+        this.seed = seed;
+        this.startBoard = startBoard;
+        this.board = startBoard;
+        this.bits = new byte[INITIAL_BYTES];
+        int tiles = 0;
+        for (int cell = 0; cell < GameEngine.NUM_CELLS; cell++) {
+            int exponent = GameEngine.getCell(startBoard, cell);
+            if (exponent != 0) {
+                appendSpawn(cell, exponent);
+                tiles++;
+            }
+        }
+        this.startTiles = tiles;
+    }
+
+    // Constructs a replay from its serialized parts.
+    private Replay(long seed, int startTiles, int moves, byte[] bits) {
+        this.seed = seed;
+        this.startTiles = startTiles;
+        this.moves = moves;
+        this.bits = bits;
+        this.bitLength = startTiles * SPAWN_BITS + moves * STEP_BITS;
+        long start = GameEngine.EMPTY_BOARD;
+        for (int tile = 0; tile < startTiles; tile++) {
+            int spawn = readBits(tile * SPAWN_BITS, SPAWN_BITS);
+            start = GameEngine.setCell(start, spawn & (GameEngine.NUM_CELLS - 1), (spawn >>> CELL_BITS) + 1);
+        }
+        this.startBoard = start;
+    }
+
+    // Records a move in given direction that led, once a tile spawned, to given board.
+    public void record(int direction, long spawnedBoard) {
+        long movedBoard = GameEngine.move(board, direction);
+        long added = spawnedBoard ^ movedBoard;
+        int cell = Long.numberOfTrailingZeros(added) >>> 2;
+        if (added == 0 || added >>> (cell << 2) > GameEngine.MAX_EXPONENT
+                || GameEngine.getCell(movedBoard, cell) != 0) {
+            throw new IllegalArgumentException("Board does not follow the move by one spawned tile");
+        }
+        appendBits(direction, MOVE_BITS);
+        appendSpawn(cell, GameEngine.getCell(spawnedBoard, cell));
+        board = spawnedBoard;
+        moves++;
+    }
+
+    // Drops every move after the given number of moves, as when moves are undone. Given board is the board those
+    // moves lead to, which recording continues from.
+    public void truncate(int moves, long board) {
+        if (moves < 0 || moves > this.moves) {
+            throw new IndexOutOfBoundsException("Cannot keep " + moves + " moves of a replay of " + this.moves);
+        }
+        int length = startTiles * SPAWN_BITS + moves * STEP_BITS;
+        int from = length >>> 3;
+        if ((length & 7) != 0) {
+            bits[from] &= (1 << (length & 7)) - 1;
+            from++;
+        }
+        Arrays.fill(bits, from, byteLength(), (byte) 0);
+        bitLength = length;
+        this.moves = moves;
+        this.board = board;
+    }
+
+    // Returns the seed the game was played with, or NO_SEED.
+    public long getSeed() {
+        return seed;
+    }
+
+    // Returns the board the game started from.
+    public long getStartBoard() {
+        return startBoard;
+    }
+
+    // Returns the number of moves recorded.
+    public int getMoves() {
+        return moves;
+    }
+
+    // Returns the direction of the move at given index.
+    public int getMove(int move) {
+        return readBits(stepPosition(move), MOVE_BITS);
+    }
+
+    // Returns the cell of the tile spawned after the move at given index.
+    public int getSpawnCell(int move) {
+        return readBits(stepPosition(move) + MOVE_BITS, CELL_BITS);
+    }
+
+    // Returns the exponent of the tile spawned after the move at given index.
+    public int getSpawnExponent(int move) {
+        return readBits(stepPosition(move) + MOVE_BITS + CELL_BITS, 1) + 1;
+    }
+
+    // Returns the number of bytes the replay takes when written.
+    public int serializedSize() {
+        return Long.BYTES + 1 + Integer.BYTES + byteLength();
+    }
+
+    // Writes the replay to given output.
+    public void write(DataOutputStream output) throws IOException {
+        output.writeLong(seed);
+        output.writeByte(startTiles);
+        output.writeInt(moves);
+        output.write(bits, 0, byteLength());
+    }
+
+    // Reads a replay written by write from given input. Checks the counts it reads before allocating anything,
+    // so a corrupt file cannot ask for a huge array.
+    public static Replay read(DataInputStream input) throws IOException {
+        long seed = input.readLong();
+        int startTiles = input.readUnsignedByte();
+        int moves = input.readInt();
+        if (startTiles > GameEngine.NUM_CELLS || moves < 0 || moves > MAX_MOVES) {
+            throw new IOException("Corrupt replay");
+        }
+        byte[] bits = new byte[(int) (((long) startTiles * SPAWN_BITS + (long) moves * STEP_BITS + 7) >>> 3)];
+        input.readFully(bits);
+        return new Replay(seed, startTiles, moves, bits);
+    }
+
+    // Appends a spawned tile at given cell with given exponent of 1 or 2.
+    private void appendSpawn(int cell, int exponent) {
+        if (exponent != GameEngine.COMMON_STARTING_EXPONENT && exponent != GameEngine.RARE_STARTING_EXPONENT) {
+            throw new IllegalArgumentException("Spawned tiles are 2 or 4, not " + GameEngine.tileValue(exponent));
+        }
+        appendBits(cell | (exponent - 1) << CELL_BITS, SPAWN_BITS);
+    }
+
+    // Appends the lowest given number of bits of value, at most 8.
+    private void appendBits(int value, int count) {
+        int index = bitLength >>> 3;
+        int shift = bitLength & 7;
+        if (index + 1 >= bits.length) {
+            bits = Arrays.copyOf(bits, bits.length * 2);
+        }
+        bits[index] |= value << shift;
+        if (shift + count > 8) {
+            bits[index + 1] |= value >>> (8 - shift);
+        }
+        bitLength += count;
+    }
+
+    // Returns given number of bits, at most 8, starting at given bit position.
+    private int readBits(int position, int count) {
+        int index = position >>> 3;
+        int shift = position & 7;
+        int value = (bits[index] & 0xFF) >>> shift;
+        if (shift + count > 8) {
+            value |= (bits[index + 1] & 0xFF) << (8 - shift);
+        }
+        return value & ((1 << count) - 1);
+    }
+
+    // Returns the bit position of the step for the move at given index.
+    private int stepPosition(int move) {
+        if (move < 0 || move >= moves) {
+            throw new IndexOutOfBoundsException("No move " + move + " in a replay of " + moves);
+        }
+        return startTiles * SPAWN_BITS + move * STEP_BITS;
+    }
+
+    // Returns the number of bytes holding recorded bits.
+    private int byteLength() {
+        return (bitLength + 7) >>> 3;
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// File of replays, one after another. New replays are appended, so a log can collect games across many runs of
+// the game and of simulations. Appending is safe from several threads.
+//
+// Replays can also be submitted to a background thread, started on the first submit, so the game over screen
+// never waits on the disk. It writes submitted replays in order and flushes once no more are waiting, and
+// whatever is still queued is written when the log is closed, including when the program exits.
+public class ReplayLog implements Closeable {
+
+    // Initialization of constants.
+    public static final int MAGIC = 0x32524C47;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataOutputStream output;
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private ThreadPoolExecutor writer;
+    private Thread shutdownHook;
+    private boolean closed;
+
+    // Opens given file for appending, creating it if it does not exist. A replay cut off by a crash at the end of
+    // the file is cut away first, so that new replays follow the last complete one.
+    public ReplayLog(File file) throws IOException {
+        boolean newLog = !file.exists() || file.length() == 0;
+        if (!newLog) {
+            truncateTornReplay(file);
+        }
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE));
+        if (newLog) {
+            output.writeInt(MAGIC);
+        }
+    }
+
+    // Appends given replay. It is buffered until the buffer fills or the log is flushed or closed.
+    public synchronized void append(Replay replay) throws IOException {
+        replay.write(output);
+    }
+
+    // Queues given replay to be appended and flushed on the log's writer thread. The replay must not change
+    // afterwards.
+    public synchronized void submit(Replay replay) {
+        if (closed) {
+            throw new IllegalStateException("Replay log is closed");
+        }
+        if (writer == null) {
+            writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, task -> {
+                Thread thread = new Thread(task, "Replay writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            shutdownHook = new Thread(this::closeQuietly, "Replay writer shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        writer.execute(() -> write(replay));
+    }
+
+    // Writes buffered replays to the file.
+    public synchronized void flush() throws IOException {
+        output.flush();
+    }
+
+    // Writes every submitted and buffered replay, stops the writer thread and closes the file. Submitting
+    // afterwards is an error.
+    public void close() throws IOException {
+        ThreadPoolExecutor submitted;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            submitted = writer;
+        }
+        if (submitted != null) {
+            submitted.shutdown();
+            try {
+                submitted.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down, possibly inside the hook itself.
+            }
+        }
+        synchronized (this) {
+            output.close();
+        }
+    }
+
+    // Runs on the writer thread. Appends given replay, and flushes unless more replays are waiting to be written
+    // with it.
+    private void write(Replay replay) {
+        try {
+            append(replay);
+            if (queue.isEmpty()) {
+                flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Closes the log when the program exits.
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Cuts given log back to its last complete replay. Reads the whole file, which only takes long for logs of
+    // millions of games.
+    private static void truncateTornReplay(File file) throws IOException {
+        long length = file.length();
+        long complete = Integer.BYTES;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a replay log");
+            }
+            while (complete < length) {
+                try {
+                    complete += Replay.read(input).serializedSize();
+                } catch (IOException e) {
+                    // The replay starting at complete was cut off or its header is corrupt.
+                    break;
+                }
+            }
+        }
+        if (complete < length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+    }
+
+    // Reads every replay in given file in order, passing each to given consumer. Returns the number read. A
+    // replay cut off by a crash at the end of the file is ignored.
+    public static long read(File file, Consumer<Replay> replays) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a replay log");
+            }
+            long count = 0;
+            while (true) {
+                Replay replay;
+                try {
+                    replay = Replay.read(input);
+                } catch (EOFException e) {
+                    return count;
+                }
+                replays.accept(replay);
+                count++;
+            }
+        }
+    }
+}
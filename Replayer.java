@@ -0,0 +1,116 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+// Reconstructs positions of recorded games by playing their moves through GameEngine at full speed, without any
+// display or animation.
+//
+// Usage: java Replayer [replay file] [game] [move]
+// With only a file, replays every game and reports their sizes and how fast they replay. With a game index and
+// optionally a move index, prints the board and score of that game after that many moves, the last by default.
+public class Replayer {
+
+    // Returns the board of given replay after given number of moves.
+    public static long positionAt(Replay replay, int moves) {
+        long board = replay.getStartBoard();
+        for (int move = 0; move < moves; move++) {
+            board = step(replay, move, board);
+        }
+        return board;
+    }
+
+    // Returns the score of given replay after given number of moves.
+    public static int scoreAt(Replay replay, int moves) {
+        long board = replay.getStartBoard();
+        int score = 0;
+        for (int move = 0; move < moves; move++) {
+            score += GameEngine.moveScore(board, replay.getMove(move));
+            board = step(replay, move, board);
+        }
+        return score;
+    }
+
+    // Returns the board of given replay after its last move.
+    public static long finalPosition(Replay replay) {
+        return positionAt(replay, replay.getMoves());
+    }
+
+    // Returns whether every spawn of given replay is the one its seed draws, which holds for games played with a
+    // generator seeded as GameBoard and Simulator seed theirs.
+    public static boolean matchesSeed(Replay replay) {
+        SplittableRandom random = new SplittableRandom(replay.getSeed());
+        if (GameEngine.newGame(random) != replay.getStartBoard()) {
+            return false;
+        }
+        long board = replay.getStartBoard();
+        for (int move = 0; move < replay.getMoves(); move++) {
+            long spawnedBoard = GameEngine.spawnTile(GameEngine.move(board, replay.getMove(move)), random);
+            board = step(replay, move, board);
+            if (spawnedBoard != board) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the board after the move at given index of given replay is played on given board, spawn included.
+    private static long step(Replay replay, int move, long board) {
+        long movedBoard = GameEngine.move(board, replay.getMove(move));
+        int cell = replay.getSpawnCell(move);
+        if (movedBoard == board || GameEngine.getCell(movedBoard, cell) != 0) {
+            throw new IllegalStateException("Replay does not follow the rules at move " + move);
+        }
+        return GameEngine.setCell(movedBoard, cell, replay.getSpawnExponent(move));
+    }
+
+    // Replays the games in the file given by the command line arguments.
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : GameLauncher.REPLAYS_FILE);
+        if (args.length > 1) {
+            printPosition(file, Long.parseLong(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : -1);
+            return;
+        }
+        long[] totals = new long[4];
+        long start = System.nanoTime();
+        long games = ReplayLog.read(file, replay -> {
+            totals[0] += replay.getMoves();
+            totals[1] += replay.serializedSize();
+            totals[2] += GameEngine.maxExponent(finalPosition(replay));
+            totals[3] += matchesSeed(replay) ? 1 : 0;
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Games: %d, moves: %d, %.1f bytes per game, %.2f bytes per move%n", games, totals[0],
+                games == 0 ? 0.0 : (double) totals[1] / games, totals[0] == 0 ? 0.0 : (double) totals[1] / totals[0]);
+        System.out.printf("Replayed in %.2f s, %.0f moves/s%n", seconds, totals[0] / seconds);
+        System.out.println("Spawns reproduced from seed: " + totals[3] + " of " + games + " games");
+    }
+
+    // Prints the board and score of the game at given index after given number of moves, or after its last move
+    // if moves is negative.
+    private static void printPosition(File file, long game, int moves) throws IOException {
+        Replay[] found = new Replay[1];
+        long[] index = new long[1];
+        ReplayLog.read(file, replay -> {
+            if (index[0]++ == game) {
+                found[0] = replay;
+            }
+        });
+        if (found[0] == null) {
+            System.out.println("No game " + game + " in " + file);
+            return;
+        }
+        Replay replay = found[0];
+        int move = moves < 0 ? replay.getMoves() : Math.min(moves, replay.getMoves());
+        long board = positionAt(replay, move);
+        System.out.println("Game " + game + " after move " + move + " of " + replay.getMoves() + ", score "
+                + scoreAt(replay, move) + ", seed " + replay.getSeed());
+        for (int row = 0; row < GameEngine.NUM_ROWS_AND_COLS; row++) {
+            StringBuilder line = new StringBuilder();
+            for (int col = 0; col < GameEngine.NUM_ROWS_AND_COLS; col++) {
+                int exponent = GameEngine.getCell(board, row, col);
+                line.append(String.format("%6s", exponent == 0 ? "." : GameEngine.tileValue(exponent)));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -6,93 +6,162 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.io.IOException;
 
 import javax.swing.JPanel;
 
 // Displays the title and current score of 2048 game.
 public class ScoreBoard extends JPanel {
 
+    // Initialization of constants.
+    public static final String SCORES_FILE = "Scores.bin";
+    public static final String LEGACY_SCORES_FILE = "Scores.txt";
+
+    // Colors that are used to paint score board.
+    public static final Color BACKGROUND_COLOR = new Color(251, 248, 239);
+    public static final Color BACKGROUND_COLOR_TITLE = new Color(238, 194, 46);
+    public static final Color BACKGROUND_COLOR_SCORE = new Color(188, 172, 158);
+    public static final Color FONT_COLOR_TAN = new Color(237, 226, 213);
+    public static final Color FONT_COLOR_WHITE = new Color(250, 247, 241);
+
+    // Used for positioning of score board shapes.
+    private static final int ARC = 10;
+    private static final int FONT_Y_VALUE_SCORE = 132;
+    private static final int FONT_Y_VALUE_SCORE_TITLE = 92;
+    private static final int FONT_Y_VALUE_TITLE = 115;
+    private static final int TILE_X_VALUE_BEST_SCORE = 485;
+    private static final int TILE_X_VALUE_CURRENT_SCORE = 325;
+    private static final int TILE_X_VALUE_TITLE = 125;
+    private static final int TILE_Y_VALUE_SCORE = 30;
+    private static final int TILE_Y_VALUE_TITLE = 30;
+    private static final int TILE_SIZE = 140;
+    private static final int FONT_Y_VALUE_RANK = 192;
+    private static final int RANK_X_VALUE = TILE_X_VALUE_CURRENT_SCORE;
+    private static final int RANK_Y_VALUE = 172;
+    private static final int RANK_WIDTH = TILE_X_VALUE_BEST_SCORE + TILE_SIZE - TILE_X_VALUE_CURRENT_SCORE;
+    private static final int RANK_HEIGHT = 28;
+
+    private static final float FONT_SIZE_TITLE = 49;
+    private static final float FONT_SIZE_SCORE = 35;
+    private static final float FONT_SIZE_RANK = 20;
+
     private int score;
     private int bestScore;
-    private Font gameFont;
-    private ArrayList<Integer> previousScores;
+    private Font titleFont;
+    private Font scoreFont;
+    private Font rankFont;
+    // Text of each score and its measured x position, kept until the score changes. -1 means not measured yet.
+    private String scoreText;
+    private String bestScoreText;
+    private int scoreTextX = -1;
+    private int bestScoreTextX = -1;
+    private int titleTextX = -1;
+    private int scoreTitleTextX = -1;
+    private int bestTitleTextX = -1;
+    // Where the current score places among previous games. Empty when there are no previous games.
+    private String rankText;
+    private int rankTextX = -1;
+    private ScoreWriter scoreWriter;
+    private ScoreHistory scoreHistory;
 
-    // Constructs ScoreBoard using given Font.
+    // Constructs ScoreBoard using given Font. Scores kept in the old text file are carried over the first time.
     public ScoreBoard(Font gameFont) {
-        this.gameFont = gameFont;
+        this(gameFont, openDefaultScoreWriter());
+    }
+
+    // Constructs ScoreBoard using given Font that keeps previous scores in given file.
+    public ScoreBoard(Font gameFont, File scoresFile) {
+        this(gameFont, openScoreWriter(scoresFile, null));
+    }
+
+    // Constructs ScoreBoard using given Font that keeps previous scores in the store of given writer. The best
+    // score is read from the store's header and the rank of the current score from the store's leaderboard,
+    // without loading previous games onto the heap.
+    public ScoreBoard(Font gameFont, ScoreWriter scoreWriter) {
+        this.titleFont = gameFont.deriveFont(FONT_SIZE_TITLE);
+        this.scoreFont = gameFont.deriveFont(FONT_SIZE_SCORE);
+        this.rankFont = gameFont.deriveFont(FONT_SIZE_RANK);
+        this.scoreWriter = scoreWriter;
         setPreferredSize(new Dimension(125, 200));
-        Scanner previousScoresInput = null;
+        if (scoreWriter != null) {
+            bestScore = scoreWriter.getStore().getBestScore();
+            try {
+                scoreHistory = scoreWriter.getStore().getHistory();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        setScoreTexts();
+    }
+
+    // Opens the score store in SCORES_FILE, carrying over scores from LEGACY_SCORES_FILE the first time, and starts a
+    // writer into it. Returns null if the store cannot be opened. Safe to call off the event dispatch thread.
+    public static ScoreWriter openDefaultScoreWriter() {
+        return openScoreWriter(new File(SCORES_FILE), new File(LEGACY_SCORES_FILE));
+    }
+
+    // Opens the score store in given file, carrying over scores from given text file if it is not null, and
+    // starts a writer into it. Returns null if the store cannot be opened, in which case scores are not kept.
+    private static ScoreWriter openScoreWriter(File scoresFile, File legacyScoresFile) {
         try {
-            previousScoresInput = new Scanner(new File("Scores.txt"));
-        } catch (FileNotFoundException e) {
+            ScoreStore scoreStore = legacyScoresFile == null ? ScoreStore.open(scoresFile)
+                    : ScoreStore.open(scoresFile, legacyScoresFile);
+            return new ScoreWriter(scoreStore);
+        } catch (IOException e) {
             e.printStackTrace();
+            return null;
         }
-        previousScores = new ArrayList<>();
-        while (previousScoresInput.hasNextInt()) {
-            previousScores.add(previousScoresInput.nextInt());
-        }
-        bestScore = previousScores.size() == 0 ? 0 : previousScores.get(0);
-        for (Integer previousScore : previousScores) {
-            if (previousScore > bestScore) {
-                bestScore = previousScore;
-            }
+    }
+
+    // Updates the displayed text of both scores and the rank. Their positions are measured again on the next paint.
+    private void setScoreTexts() {
+        scoreText = Integer.toString(score);
+        bestScoreText = Integer.toString(bestScore);
+        rankText = rankText();
+        scoreTextX = -1;
+        bestScoreTextX = -1;
+        rankTextX = -1;
+    }
+
+    // Returns the text placing the current score among previous games.
+    private String rankText() {
+        long previousGames = scoreHistory == null ? 0 : scoreHistory.getCount();
+        if (previousGames == 0) {
+            return "";
         }
+        return "RANK " + scoreHistory.rank(score) + " OF " + (previousGames + 1) + "  -  BETTER THAN "
+                + (int) scoreHistory.percentBelow(score) + "%";
     }
 
-    // Increases score by given amount and repaints board.
+    // Increases score by given amount and repaints only the current score tile and the rank.
     public void updateScore(int scoreUpdate) {
         score += scoreUpdate;
-        repaint();
+        setScoreTexts();
+        repaint(TILE_X_VALUE_CURRENT_SCORE, TILE_Y_VALUE_SCORE, TILE_SIZE, TILE_SIZE);
+        repaint(RANK_X_VALUE, RANK_Y_VALUE, RANK_WIDTH, RANK_HEIGHT);
     }
 
-    // Resets score for next round and changes best score if this score beat it.
-    public void gameOver() {
-        previousScores.add(score);
+    // Queues the finished game with given largest tile exponent to be recorded, resets score for next round and
+    // changes best score if this score beat it. Never waits on the disk.
+    public void gameOver(int maxExponent) {
         if (score > bestScore) {
             bestScore = score;
         }
-        PrintStream previousScoresOutput = null;
-        try {
-            previousScoresOutput = new PrintStream(new File("Scores.txt"));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        for (Integer previousScore : previousScores) {
-            previousScoresOutput.println(previousScore);
+        if (scoreWriter != null) {
+            scoreWriter.submit(score, maxExponent, System.currentTimeMillis());
         }
         score = 0;
+        setScoreTexts();
+        repaint(TILE_X_VALUE_CURRENT_SCORE, TILE_Y_VALUE_SCORE, TILE_SIZE, TILE_SIZE);
+        repaint(TILE_X_VALUE_BEST_SCORE, TILE_Y_VALUE_SCORE, TILE_SIZE, TILE_SIZE);
+        repaint(RANK_X_VALUE, RANK_Y_VALUE, RANK_WIDTH, RANK_HEIGHT);
     }
 
-    // Draws the score board design and updates new score upon repaint.
+    // Draws the score board design and updates new score upon repaint. Text is only measured when it changes.
     public void paint(Graphics g) {
+        long start = Metrics.start();
         super.paint(g);
 
-        // Initialization of constants.
-        // Colors that are used to paint score board.
-        final Color BACKGROUND_COLOR = new Color(251, 248, 239);
-        final Color BACKGROUND_COLOR_TITLE = new Color(238, 194, 46);
-        final Color BACKGROUND_COLOR_SCORE = new Color(188, 172, 158);
-        final Color FONT_COLOR_TAN = new Color(237, 226, 213);
-        final Color FONT_COLOR_WHITE = new Color(250, 247, 241);
-
-        // Used for positioning of score board shapes.
-        final int ARC = 10;
-        final int FONT_Y_VALUE_SCORE = 132;
-        final int FONT_Y_VALUE_SCORE_TITLE = 92;
-        final int TILE_X_VALUE_BEST_SCORE = 485;
-        final int TILE_X_VALUE_CURRENT_SCORE = 325;
-        final int TILE_X_VALUE_TITLE = 125;
-        final int TILE_Y_VALUE_SCORE = 30;
-        final int TILE_Y_VALUE_TITLE = 30;
-        final int TILE_SIZE = 140;
-
-        final float FONT_SIZE_TITLE = 49;
-        final float FONT_SIZE_SCORE = 35;
-
         // Draws background of panel.
         g.setColor(BACKGROUND_COLOR);
         g.fillRect(0, 0, 750, 200);
@@ -100,29 +169,50 @@ public class ScoreBoard extends JPanel {
         // Draws tile with title name.
         g.setColor(BACKGROUND_COLOR_TITLE);
         g.fillRoundRect(TILE_X_VALUE_TITLE, TILE_Y_VALUE_TITLE, TILE_SIZE, TILE_SIZE, ARC, ARC);
-        g.setFont(gameFont.deriveFont(FONT_SIZE_TITLE));
+        g.setFont(titleFont);
         g.setColor(FONT_COLOR_WHITE);
-        drawCenteredText(g, "2048", TILE_X_VALUE_TITLE, TILE_SIZE, 115);
+        if (titleTextX < 0) {
+            titleTextX = centeredTextX(g, "2048", TILE_X_VALUE_TITLE, TILE_SIZE);
+        }
+        g.drawString("2048", titleTextX, FONT_Y_VALUE_TITLE);
 
         // Draws tiles with score and best score.
         g.setColor(BACKGROUND_COLOR_SCORE);
         g.fillRoundRect(TILE_X_VALUE_CURRENT_SCORE, TILE_Y_VALUE_SCORE, TILE_SIZE, TILE_SIZE, ARC, ARC);
         g.fillRoundRect(TILE_X_VALUE_BEST_SCORE, TILE_Y_VALUE_SCORE, TILE_SIZE, TILE_SIZE, ARC, ARC);
         g.setColor(FONT_COLOR_TAN);
-        g.setFont(gameFont.deriveFont(FONT_SIZE_SCORE));
-        drawCenteredText(g, "SCORE", TILE_X_VALUE_CURRENT_SCORE, TILE_SIZE, FONT_Y_VALUE_SCORE_TITLE);
-        drawCenteredText(g, "BEST", TILE_X_VALUE_BEST_SCORE, TILE_SIZE, FONT_Y_VALUE_SCORE_TITLE);
+        g.setFont(scoreFont);
+        if (scoreTitleTextX < 0) {
+            scoreTitleTextX = centeredTextX(g, "SCORE", TILE_X_VALUE_CURRENT_SCORE, TILE_SIZE);
+            bestTitleTextX = centeredTextX(g, "BEST", TILE_X_VALUE_BEST_SCORE, TILE_SIZE);
+        }
+        g.drawString("SCORE", scoreTitleTextX, FONT_Y_VALUE_SCORE_TITLE);
+        g.drawString("BEST", bestTitleTextX, FONT_Y_VALUE_SCORE_TITLE);
         g.setColor(FONT_COLOR_WHITE);
-        drawCenteredText(g, score + "", TILE_X_VALUE_CURRENT_SCORE, TILE_SIZE, FONT_Y_VALUE_SCORE);
-        drawCenteredText(g, bestScore + "", TILE_X_VALUE_BEST_SCORE, TILE_SIZE, FONT_Y_VALUE_SCORE);
+        if (scoreTextX < 0) {
+            scoreTextX = centeredTextX(g, scoreText, TILE_X_VALUE_CURRENT_SCORE, TILE_SIZE);
+        }
+        if (bestScoreTextX < 0) {
+            bestScoreTextX = centeredTextX(g, bestScoreText, TILE_X_VALUE_BEST_SCORE, TILE_SIZE);
+        }
+        g.drawString(scoreText, scoreTextX, FONT_Y_VALUE_SCORE);
+        g.drawString(bestScoreText, bestScoreTextX, FONT_Y_VALUE_SCORE);
+
+        // Draws where the current score places among previous games.
+        g.setColor(BACKGROUND_COLOR_SCORE);
+        g.setFont(rankFont);
+        if (rankTextX < 0) {
+            rankTextX = centeredTextX(g, rankText, RANK_X_VALUE, RANK_WIDTH);
+        }
+        g.drawString(rankText, rankTextX, FONT_Y_VALUE_RANK);
+        Metrics.record(Metrics.Metric.SCORE_PAINT, start);
     }
 
-    // Draws text centered in a rectangle with the given positioning.
-    private void drawCenteredText(Graphics g, String textDisplay, int rectXValue, int rectSize, int fontYValue) {
+    // Returns the x value that centers text in a rectangle with the given positioning, using the current font.
+    private int centeredTextX(Graphics g, String textDisplay, int rectXValue, int rectSize) {
         Graphics2D g2d = (Graphics2D) g;
         FontMetrics fm = g2d.getFontMetrics();
         Rectangle2D r = fm.getStringBounds(textDisplay, g2d);
-        int fontXValue = (rectXValue + rectSize / 2) - (int) (r.getWidth() / 2);
-        g.drawString(textDisplay, fontXValue, fontYValue);
+        return (rectXValue + rectSize / 2) - (int) (r.getWidth() / 2);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,388 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Leaderboard queries over the games in a ScoreStore. The records are memory-mapped from the store's file rather
+// than read onto the heap, and two indexes are kept up to date as games are added: the best games so far, and a
+// count of games per score held in a Fenwick tree, so ranks and percentiles take a handful of steps no matter how
+// many games were played.
+//
+// ScoreStore keeps record timestamps from going down, even across threads and a clock set back, so a time window
+// is found by binary search. Scores carried over from the old text file have timestamp 0 and come first.
+//
+// Both indexes are checkpointed into an index file next to the store every CHECKPOINT_INTERVAL games and when the
+// store closes, so opening only reads the games recorded after the last checkpoint, however many came before. A
+// checkpoint is written to a temporary file and renamed over the old one, and one that is missing, fails its
+// checksum or does not match the store is ignored and the indexes are rebuilt from every record.
+public class ScoreHistory {
+
+    // Initialization of constants.
+    public static final int TOP_SIZE = 10;
+    public static final int CHECKPOINT_INTERVAL = 1 << 16;
+
+    // Every score in 2048 is a sum of merged tile values, all multiples of 4, so counting scores in steps of 4
+    // keeps ranks exact.
+    private static final int SCORE_SHIFT = 2;
+    // Number of records in each mapped part of the file. A single mapping is limited to 2 GB.
+    private static final int SEGMENT_RECORDS = 1 << 22;
+    private static final int INITIAL_BUCKETS = 1 << 12;
+    private static final int MAX_BUCKETS = Integer.highestOneBit(ScoreStore.MAX_SCORE >>> SCORE_SHIFT) << 1;
+    private static final int INDEX_MAGIC = 0x32304958;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    // Null if the indexes are not checkpointed.
+    private final File indexFile;
+    private MappedByteBuffer[] segments;
+    private long mappedCount;
+    private long count;
+    // Number of games per score bucket, and the same counts summed over ranges of buckets.
+    private int[] bucketCounts;
+    private int[] tree;
+    // Min-heap of the best games, each packed as score << 32 | record index.
+    private final long[] top;
+    private int topSize;
+    // Number of games counted by the last checkpoint.
+    private long checkpointed;
+
+    // Constructs the history of the given number of records in the store file read through given channel,
+    // starting from the checkpoint in given index file, or from nothing if it is null.
+    ScoreHistory(FileChannel channel, long count, File indexFile) throws IOException {
+        this.channel = channel;
+        this.indexFile = indexFile;
+        this.segments = new MappedByteBuffer[0];
+        this.bucketCounts = new int[INITIAL_BUCKETS];
+        this.tree = new int[INITIAL_BUCKETS + 1];
+        this.top = new long[TOP_SIZE];
+        if (indexFile != null && indexFile.exists()) {
+            readCheckpoint(count);
+        }
+        for (long index = checkpointed; index < count; index++) {
+            add(score(index, count), index);
+        }
+        this.count = count;
+        if (needsCheckpoint()) {
+            checkpoint();
+        }
+    }
+
+    // Adds the game at given record index with given score, which the store has checked is in range. Called by
+    // the store after the record is written.
+    synchronized void add(int score, long index) {
+        int bucket = score >>> SCORE_SHIFT;
+        if (bucket >= bucketCounts.length) {
+            growBuckets(bucket);
+        }
+        bucketCounts[bucket]++;
+        for (int node = bucket + 1; node < tree.length; node += node & -node) {
+            tree[node]++;
+        }
+        addTop(((long) score << 32) | index);
+        count = index + 1;
+    }
+
+    // Returns whether CHECKPOINT_INTERVAL games have been added since the last checkpoint.
+    synchronized boolean needsCheckpoint() {
+        return indexFile != null && count - checkpointed >= CHECKPOINT_INTERVAL;
+    }
+
+    // Writes both indexes to the index file, replacing the last checkpoint only once the new one is complete.
+    synchronized void checkpoint() throws IOException {
+        if (indexFile == null || count == checkpointed) {
+            return;
+        }
+        File temporary = new File(indexFile.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporary), INDEX_BUFFER_SIZE), crc))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeLong(count);
+            // The last game counted, so a checkpoint of some other store is noticed.
+            output.writeLong(count == 0 ? 0 : timestamp(count - 1));
+            output.writeInt(count == 0 ? 0 : score(count - 1));
+            output.writeInt(topSize);
+            for (int i = 0; i < topSize; i++) {
+                output.writeLong(top[i]);
+            }
+            int usedBuckets = 0;
+            for (int bucketCount : bucketCounts) {
+                usedBuckets += bucketCount == 0 ? 0 : 1;
+            }
+            output.writeInt(bucketCounts.length);
+            output.writeInt(usedBuckets);
+            for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+                if (bucketCounts[bucket] != 0) {
+                    output.writeInt(bucket);
+                    output.writeInt(bucketCounts[bucket]);
+                }
+            }
+            output.flush();
+            output.writeLong(crc.getValue());
+        }
+        Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        checkpointed = count;
+    }
+
+    // Returns the number of games in the history.
+    public synchronized long getCount() {
+        return count;
+    }
+
+    // Returns the place given score would take among the games in the history, 1 being the best.
+    public synchronized long rank(int score) {
+        return 1 + count - countAtMost(score);
+    }
+
+    // Returns the percentage of games in the history that scored less than given score.
+    public synchronized double percentBelow(int score) {
+        if (count == 0) {
+            return 0;
+        }
+        return 100.0 * (score < 1 << SCORE_SHIFT ? 0 : countAtMost(score - (1 << SCORE_SHIFT))) / count;
+    }
+
+    // Returns the lowest score that at least given percentage of games did not beat, or 0 if there are no games.
+    public synchronized int scoreAtPercentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        // Walks down the tree to the last bucket whose running count stays below the target.
+        int bucket = 0;
+        long below = 0;
+        for (int step = Integer.highestOneBit(bucketCounts.length); step > 0; step >>= 1) {
+            int next = bucket + step;
+            if (next < tree.length && below + tree[next] < target) {
+                bucket = next;
+                below += tree[next];
+            }
+        }
+        return bucket << SCORE_SHIFT;
+    }
+
+    // Returns the record indexes of the best games, best first.
+    public synchronized long[] top() {
+        long[] sorted = new long[topSize];
+        System.arraycopy(top, 0, sorted, 0, topSize);
+        Arrays.sort(sorted);
+        long[] indexes = new long[topSize];
+        for (int i = 0; i < topSize; i++) {
+            indexes[i] = sorted[topSize - 1 - i] & 0xFFFFFFFFL;
+        }
+        return indexes;
+    }
+
+    // Returns the index of the first game that finished at or after given time in epoch milliseconds.
+    public synchronized long firstIndexAt(long timestamp) throws IOException {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (timestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Returns the scores of games that finished from time from up to but not including time to, in epoch
+    // milliseconds, in the order they finished.
+    public synchronized int[] scoresBetween(long from, long to) throws IOException {
+        long first = firstIndexAt(from);
+        long last = Math.max(first, firstIndexAt(to));
+        int[] scores = new int[(int) (last - first)];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = score(first + i);
+        }
+        return scores;
+    }
+
+    // Returns the score of the game at given record index.
+    public synchronized int score(long index) throws IOException {
+        return score(index, count);
+    }
+
+    // Returns the largest tile exponent of the game at given record index.
+    public synchronized int maxExponent(long index) throws IOException {
+        return segment(index, count).getInt(offset(index) + ScoreStore.MAX_EXPONENT_POSITION);
+    }
+
+    // Returns the time the game at given record index finished, in epoch milliseconds.
+    public synchronized long timestamp(long index) throws IOException {
+        return segment(index, count).getLong(offset(index) + ScoreStore.TIMESTAMP_POSITION);
+    }
+
+    // Returns the score of the game at given record index, with given number of records in the file.
+    private int score(long index, long records) throws IOException {
+        return ScoreStore.readScore(segment(index, records).getInt(offset(index) + ScoreStore.SCORE_POSITION));
+    }
+
+    // Returns the number of games that scored at most given score.
+    private long countAtMost(int score) {
+        long games = 0;
+        int bucket = Math.min(score >>> SCORE_SHIFT, bucketCounts.length - 1);
+        for (int node = bucket + 1; node > 0; node -= node & -node) {
+            games += tree[node];
+        }
+        return games;
+    }
+
+    // Reads the checkpoint in the index file if it is whole and matches the first given number of records of the
+    // store, and sets checkpointed to the number of games it counts. Leaves the indexes empty otherwise.
+    private void readCheckpoint(long records) {
+        CRC32 crc = new CRC32();
+        try (DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(
+                new FileInputStream(indexFile), INDEX_BUFFER_SIZE), crc))) {
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+                return;
+            }
+            long games = input.readLong();
+            long lastTimestamp = input.readLong();
+            int lastScore = input.readInt();
+            if (games <= 0 || games > records || segment(games - 1, records).getLong(offset(games - 1)
+                    + ScoreStore.TIMESTAMP_POSITION) != lastTimestamp || score(games - 1, records) != lastScore) {
+                return;
+            }
+            int topGames = input.readInt();
+            if (topGames < 0 || topGames > TOP_SIZE) {
+                return;
+            }
+            long[] readTop = new long[topGames];
+            for (int i = 0; i < readTop.length; i++) {
+                readTop[i] = input.readLong();
+                if ((readTop[i] & 0xFFFFFFFFL) >= games) {
+                    return;
+                }
+            }
+            int length = input.readInt();
+            int usedBuckets = input.readInt();
+            if (length < INITIAL_BUCKETS || length > MAX_BUCKETS || Integer.bitCount(length) != 1
+                    || usedBuckets < 0 || usedBuckets > length) {
+                return;
+            }
+            int[] readCounts = new int[length];
+            long counted = 0;
+            for (int i = 0; i < usedBuckets; i++) {
+                int bucket = input.readInt();
+                int bucketCount = input.readInt();
+                if (bucket < 0 || bucket >= length || bucketCount <= 0) {
+                    return;
+                }
+                readCounts[bucket] = bucketCount;
+                counted += bucketCount;
+            }
+            long expected = crc.getValue();
+            if (counted != games || input.readLong() != expected) {
+                return;
+            }
+            System.arraycopy(readTop, 0, top, 0, readTop.length);
+            topSize = readTop.length;
+            bucketCounts = readCounts;
+            buildTree();
+            checkpointed = games;
+        } catch (IOException e) {
+            // A torn or unreadable checkpoint; the indexes are rebuilt from the records.
+        }
+    }
+
+    // Doubles the number of score buckets until given bucket fits and rebuilds the tree over them. Never grows past
+    // the bucket of ScoreStore.MAX_SCORE.
+    private void growBuckets(int bucket) {
+        if (bucket >= MAX_BUCKETS) {
+            throw new IllegalArgumentException("Score bucket out of range: " + bucket);
+        }
+        int length = bucketCounts.length;
+        while (length <= bucket) {
+            length <<= 1;
+        }
+        bucketCounts = Arrays.copyOf(bucketCounts, length);
+        buildTree();
+    }
+
+    // Builds the tree of running counts over the score buckets.
+    private void buildTree() {
+        int length = bucketCounts.length;
+        tree = new int[length + 1];
+        for (int node = 1; node <= length; node++) {
+            tree[node] += bucketCounts[node - 1];
+            int parent = node + (node & -node);
+            if (parent <= length) {
+                tree[parent] += tree[node];
+            }
+        }
+    }
+
+    // Offers a packed game to the best games, replacing the worst of them if the heap is full.
+    private void addTop(long game) {
+        if (topSize < TOP_SIZE) {
+            int child = topSize++;
+            while (child > 0 && top[(child - 1) / 2] > game) {
+                top[child] = top[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            top[child] = game;
+        } else if ((game >>> 32) > (top[0] >>> 32)) {
+            int parent = 0;
+            while (2 * parent + 1 < topSize) {
+                int child = 2 * parent + 1;
+                if (child + 1 < topSize && top[child + 1] < top[child]) {
+                    child++;
+                }
+                if (top[child] >= game) {
+                    break;
+                }
+                top[parent] = top[child];
+                parent = child;
+            }
+            top[parent] = game;
+        }
+    }
+
+    // Returns the mapped part of the file holding the record at given index, mapping newly added records first.
+    private MappedByteBuffer segment(long index, long records) throws IOException {
+        if (index < 0 || index >= records) {
+            throw new IndexOutOfBoundsException("No game at index " + index);
+        }
+        if (index >= mappedCount) {
+            map(records);
+        }
+        return segments[(int) (index / SEGMENT_RECORDS)];
+    }
+
+    // Maps the file up to given number of records. Only the last mapped part is mapped again as the file grows.
+    private void map(long records) throws IOException {
+        int segmentCount = (int) ((records + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+        int first = mappedCount == 0 ? 0 : (int) ((mappedCount - 1) / SEGMENT_RECORDS);
+        segments = Arrays.copyOf(segments, segmentCount);
+        for (int segment = first; segment < segmentCount; segment++) {
+            long start = (long) segment * SEGMENT_RECORDS;
+            long length = Math.min(SEGMENT_RECORDS, records - start) * ScoreStore.RECORD_SIZE;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, ScoreStore.HEADER_SIZE
+                    + start * ScoreStore.RECORD_SIZE, length);
+        }
+        mappedCount = records;
+    }
+
+    // Returns the position of the record at given index within its mapped part.
+    private static int offset(long index) {
+        return (int) (index % SEGMENT_RECORDS) * ScoreStore.RECORD_SIZE;
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+// Append-only binary log of finished games. The file starts with a fixed size header holding the number of games,
+// the best score and running totals, followed by one fixed size record per game. Opening reads only the header
+// and recording a game writes one record and the header, so neither depends on how many games came before.
+//
+// A record is always written before the header that counts it. After a crash, records the header does not count
+// yet are folded back in, a partly written record is cut off, and a header that fails its checksum is rebuilt
+// from the records.
+//
+// Timestamps never go down from one record to the next, which ScoreHistory relies on to search by time. A game
+// that arrives with an earlier time than the last one, from another thread or a clock that was set back, is
+// recorded at the last one's time.
+public class ScoreStore implements Closeable {
+
+    // Initialization of constants.
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 16;
+    // Above the best score any game of 2048 can reach, 3932100 with a 131072 tile built from 4s. Scores outside 0
+    // to MAX_SCORE are refused when recorded and read as 0 from a corrupt file.
+    public static final int MAX_SCORE = 1 << 22;
+
+    private static final int MAGIC = 0x32303438;
+    private static final int VERSION = 1;
+    // Header layout.
+    private static final int MAGIC_POSITION = 0;
+    private static final int VERSION_POSITION = 4;
+    private static final int COUNT_POSITION = 8;
+    private static final int TOTAL_SCORE_POSITION = 16;
+    private static final int BEST_SCORE_POSITION = 24;
+    private static final int BEST_MAX_EXPONENT_POSITION = 28;
+    private static final int CHECKSUM_POSITION = 56;
+    // Record layout.
+    static final int TIMESTAMP_POSITION = 0;
+    static final int SCORE_POSITION = 8;
+    static final int MAX_EXPONENT_POSITION = 12;
+    // Number of records read at once while rebuilding the header.
+    private static final int RECORDS_PER_READ = 4096;
+    // Appended to the store's file name to name the file its ScoreHistory checkpoints into.
+    private static final String INDEX_SUFFIX = ".index";
+
+    private final FileChannel channel;
+    private final File indexFile;
+    private final ByteBuffer header;
+    private final ByteBuffer record;
+    private final CRC32 checksum;
+    private long count;
+    // Timestamp of the last record, or 0 if there are none.
+    private long lastTimestamp;
+    private long totalScore;
+    private int bestScore;
+    private int bestMaxExponent;
+    private ScoreHistory history;
+
+    // Opens the store in given file, creating it if it does not exist.
+    public static ScoreStore open(File file) throws IOException {
+        return new ScoreStore(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE), new File(file.getPath() + INDEX_SUFFIX));
+    }
+
+    // Opens the store in given file. If the store is new, first copies in the scores of given text file with
+    // one score per line, the format scores were kept in before. The copy is made in a temporary file that is
+    // renamed into place once complete, so an interrupted copy leaves no store and is started over next time.
+    public static ScoreStore open(File file, File legacyScoresFile) throws IOException {
+        if (!file.exists() && legacyScoresFile.exists()) {
+            File temporary = new File(file.getPath() + ".tmp");
+            Files.deleteIfExists(temporary.toPath());
+            try (ScoreStore imported = open(temporary);
+                    Scanner previousScoresInput = new Scanner(legacyScoresFile)) {
+                while (previousScoresInput.hasNextInt()) {
+                    int score = previousScoresInput.nextInt();
+                    if (isValidScore(score)) {
+                        imported.record(score, 0, 0);
+                    }
+                }
+                imported.sync();
+            } catch (FileNotFoundException e) {
+                e.printStackTrace();
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return open(file);
+    }
+
+    // Constructs a store on given channel whose history checkpoints into given file, and reads or repairs its
+    // header.
+    private ScoreStore(FileChannel channel, File indexFile) throws IOException {
+        this.channel = channel;
+        this.indexFile = indexFile;
+        this.header = ByteBuffer.allocateDirect(HEADER_SIZE);
+        this.record = ByteBuffer.allocateDirect(RECORD_SIZE);
+        this.checksum = new CRC32();
+        load();
+    }
+
+    // Appends a finished game with given score, largest tile exponent and time in epoch milliseconds, or the time
+    // of the last game if that is later.
+    public synchronized void record(int score, int maxExponent, long timestamp) throws IOException {
+        checkScore(score);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        record.clear();
+        record.putLong(TIMESTAMP_POSITION, lastTimestamp);
+        record.putInt(SCORE_POSITION, score);
+        record.putInt(MAX_EXPONENT_POSITION, maxExponent);
+        writeFully(record, recordPosition(count));
+        add(score, maxExponent);
+        writeHeader();
+        if (history != null) {
+            history.add(score, count - 1);
+            checkpointHistory(false);
+        }
+    }
+
+    // Returns the leaderboard over all recorded games, indexing them the first time it is asked for.
+    public synchronized ScoreHistory getHistory() throws IOException {
+        if (history == null) {
+            history = new ScoreHistory(channel, count, indexFile);
+        }
+        return history;
+    }
+
+    // Appends given finished games with one write for all their records and one for the header. Like record, keeps
+    // timestamps from going down.
+    public synchronized void recordAll(List<Game> games) throws IOException {
+        if (games.isEmpty()) {
+            return;
+        }
+        ByteBuffer records = ByteBuffer.allocate(games.size() * RECORD_SIZE);
+        for (int i = 0; i < games.size(); i++) {
+            Game game = games.get(i);
+            int offset = i * RECORD_SIZE;
+            lastTimestamp = Math.max(lastTimestamp, game.timestamp);
+            records.putLong(offset + TIMESTAMP_POSITION, lastTimestamp);
+            records.putInt(offset + SCORE_POSITION, game.score);
+            records.putInt(offset + MAX_EXPONENT_POSITION, game.maxExponent);
+        }
+        long first = count;
+        writeFully(records, recordPosition(first));
+        for (Game game : games) {
+            add(game.score, game.maxExponent);
+        }
+        writeHeader();
+        if (history != null) {
+            for (int i = 0; i < games.size(); i++) {
+                history.add(games.get(i).score, first + i);
+            }
+            checkpointHistory(false);
+        }
+    }
+
+    // Forces everything written so far onto the storage device.
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    // Returns the number of games recorded.
+    public synchronized long getCount() {
+        return count;
+    }
+
+    // Returns the best score recorded, or 0 if there are none.
+    public synchronized int getBestScore() {
+        return bestScore;
+    }
+
+    // Returns the largest tile exponent of the best scoring game.
+    public synchronized int getBestMaxExponent() {
+        return bestMaxExponent;
+    }
+
+    // Returns the sum of all recorded scores.
+    public synchronized long getTotalScore() {
+        return totalScore;
+    }
+
+    // Returns the mean of all recorded scores, or 0 if there are none.
+    public synchronized double meanScore() {
+        return count == 0 ? 0 : (double) totalScore / count;
+    }
+
+    // Returns whether given score is one a game can reach.
+    public static boolean isValidScore(int score) {
+        return score >= 0 && score <= MAX_SCORE;
+    }
+
+    // Throws IllegalArgumentException if given score is not one a game can reach.
+    static void checkScore(int score) {
+        if (!isValidScore(score)) {
+            throw new IllegalArgumentException("Score out of range: " + score);
+        }
+    }
+
+    // Returns given score read from the file, or 0 if the record is corrupt.
+    static int readScore(int score) {
+        return isValidScore(score) ? score : 0;
+    }
+
+    // Checkpoints the history, if it was indexed, and closes the underlying file.
+    public synchronized void close() throws IOException {
+        try {
+            checkpointHistory(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Checkpoints the history if it was indexed and has enough new games, or has any at all when closing. A
+    // failed checkpoint only means the next open reads more records, so it does not fail the recording.
+    private void checkpointHistory(boolean closing) {
+        if (history != null && (closing || history.needsCheckpoint())) {
+            try {
+                history.checkpoint();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Reads the header and makes it agree with the records actually in the file.
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            // New file, or one whose creation never finished.
+            channel.truncate(0);
+            writeHeader();
+            return;
+        }
+        long records = (size - HEADER_SIZE) / RECORD_SIZE;
+        if (size != recordPosition(records)) {
+            channel.truncate(recordPosition(records));
+        }
+        header.clear();
+        readFully(header, 0);
+        boolean valid = header.getInt(MAGIC_POSITION) == MAGIC && header.getInt(VERSION_POSITION) == VERSION
+                && header.getLong(CHECKSUM_POSITION) == headerChecksum();
+        count = header.getLong(COUNT_POSITION);
+        totalScore = header.getLong(TOTAL_SCORE_POSITION);
+        bestScore = header.getInt(BEST_SCORE_POSITION);
+        bestMaxExponent = header.getInt(BEST_MAX_EXPONENT_POSITION);
+        if (!valid || count > records || count < 0) {
+            count = 0;
+            totalScore = 0;
+            bestScore = 0;
+            bestMaxExponent = 0;
+        }
+        if (count < records) {
+            addRecords(count, records);
+            writeHeader();
+        }
+        if (count > 0) {
+            record.clear();
+            readFully(record, recordPosition(count - 1));
+            lastTimestamp = record.getLong(TIMESTAMP_POSITION);
+        }
+    }
+
+    // Adds records from index first up to but not including index last to the header totals.
+    private void addRecords(long first, long last) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(RECORDS_PER_READ * RECORD_SIZE);
+        for (long index = first; index < last; index += RECORDS_PER_READ) {
+            int batch = (int) Math.min(RECORDS_PER_READ, last - index);
+            records.clear().limit(batch * RECORD_SIZE);
+            readFully(records, recordPosition(index));
+            for (int i = 0; i < batch; i++) {
+                int offset = i * RECORD_SIZE;
+                add(readScore(records.getInt(offset + SCORE_POSITION)),
+                        records.getInt(offset + MAX_EXPONENT_POSITION));
+            }
+        }
+    }
+
+    // Adds one game to the header totals.
+    private void add(int score, int maxExponent) {
+        count++;
+        totalScore += score;
+        if (score > bestScore) {
+            bestScore = score;
+            bestMaxExponent = maxExponent;
+        }
+    }
+
+    // Writes the header totals with their checksum.
+    private void writeHeader() throws IOException {
+        header.clear();
+        header.putInt(MAGIC_POSITION, MAGIC);
+        header.putInt(VERSION_POSITION, VERSION);
+        header.putLong(COUNT_POSITION, count);
+        header.putLong(TOTAL_SCORE_POSITION, totalScore);
+        header.putInt(BEST_SCORE_POSITION, bestScore);
+        header.putInt(BEST_MAX_EXPONENT_POSITION, bestMaxExponent);
+        header.putLong(CHECKSUM_POSITION, headerChecksum());
+        writeFully(header, 0);
+    }
+
+    // Returns the checksum of the header fields that come before the checksum.
+    private long headerChecksum() {
+        checksum.reset();
+        header.clear().limit(CHECKSUM_POSITION);
+        checksum.update(header);
+        header.clear();
+        return checksum.getValue();
+    }
+
+    // Returns the file position of the record at given index.
+    private static long recordPosition(long index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    // Writes all remaining bytes of given buffer starting at given file position.
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // Fills the remaining space of given buffer from given file position.
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of score store");
+            }
+            position += read;
+        }
+    }
+
+    // One finished game waiting to be recorded.
+    public static final class Game {
+
+        final int score;
+        final int maxExponent;
+        final long timestamp;
+
+        // Constructs a game with given score, largest tile exponent and time in epoch milliseconds. Throws
+        // IllegalArgumentException if the score is not one a game can reach.
+        public Game(int score, int maxExponent, long timestamp) {
+            checkScore(score);
+            this.score = score;
+            this.maxExponent = maxExponent;
+            this.timestamp = timestamp;
+        }
+    }
+}
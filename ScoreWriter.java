@@ -0,0 +1,199 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Records finished games into a ScoreStore on a background thread, so the game over screen and simulations never
+// wait on the disk. Games that arrive while a write is under way are queued and written together in the next
+// one, and the sync policy decides how often written games are forced onto the storage device. Whatever is still
+// queued is written and synced when the writer is closed, including when the program exits.
+public class ScoreWriter implements Closeable {
+
+    // How often written games are forced onto the storage device.
+    public enum SyncPolicy {
+        // Leaves it to the operating system. Fastest, but a power loss can lose the last games.
+        NEVER,
+        // After every batch of games.
+        EVERY_BATCH,
+        // At most once per sync interval, and soon after the last write if no more games arrive.
+        INTERVAL
+    }
+
+    // Initialization of constants.
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int MAX_BATCH = 4096;
+    public static final long DEFAULT_SYNC_INTERVAL = 1000;
+
+    // Queued to wake the writer thread when the writer is closed.
+    private static final ScoreStore.Game CLOSE = new ScoreStore.Game(0, 0, 0);
+
+    private final ScoreStore store;
+    private final SyncPolicy syncPolicy;
+    private final long syncIntervalNanos;
+    private final BlockingQueue<ScoreStore.Game> queue;
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private final AtomicLong submitted;
+    // Held shared while a game is queued and exclusively while closing, so that no game is queued after CLOSE.
+    private final ReadWriteLock closeLock;
+    // Number of games the writer thread is done with, guarded by this writer.
+    private long written;
+    // Guarded by closeLock.
+    private boolean closed;
+
+    // Constructs a writer into given store that syncs at most once per default interval.
+    public ScoreWriter(ScoreStore store) {
+        this(store, SyncPolicy.INTERVAL, DEFAULT_SYNC_INTERVAL);
+    }
+
+    // Constructs a writer into given store with given sync policy and interval in milliseconds for
+    // SyncPolicy.INTERVAL, and starts its thread.
+    public ScoreWriter(ScoreStore store, SyncPolicy syncPolicy, long syncIntervalMillis) {
+        this.store = store;
+        this.syncPolicy = syncPolicy;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.queue = new ArrayBlockingQueue<>(DEFAULT_CAPACITY);
+        this.submitted = new AtomicLong();
+        this.closeLock = new ReentrantReadWriteLock();
+        this.thread = new Thread(this::writeGames, "Score writer");
+        this.shutdownHook = new Thread(this::close, "Score writer shutdown");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    // Returns the store games are written into.
+    public ScoreStore getStore() {
+        return store;
+    }
+
+    // Queues a finished game with given score, largest tile exponent and time in epoch milliseconds. Only waits
+    // if the queue is full, which means the disk cannot keep up. An interrupt while waiting does not lose the
+    // game; it is queued anyway and the interrupt is kept for the caller.
+    public void submit(int score, int maxExponent, long timestamp) {
+        ScoreStore.Game game = new ScoreStore.Game(score, maxExponent, timestamp);
+        boolean interrupted = false;
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Score writer is closed");
+            }
+            while (true) {
+                try {
+                    queue.put(game);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            submitted.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Waits until every game submitted before this call has been written.
+    public void flush() throws InterruptedException {
+        long target = submitted.get();
+        synchronized (this) {
+            while (written < target && thread.isAlive()) {
+                wait();
+            }
+        }
+    }
+
+    // Writes every queued game, syncs them unless the policy is SyncPolicy.NEVER and stops the writer thread.
+    // Waits for submits under way to queue their games first. Submitting afterwards is an error. The store itself
+    // stays open.
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            queue.put(CLOSE);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down, possibly inside the hook itself.
+        }
+    }
+
+    // Runs on the writer thread. Takes the queued games in batches until the writer is closed.
+    private void writeGames() {
+        List<ScoreStore.Game> batch = new ArrayList<>();
+        boolean unsynced = false;
+        long lastSync = System.nanoTime();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                ScoreStore.Game first;
+                if (unsynced && syncPolicy == SyncPolicy.INTERVAL) {
+                    long wait = syncIntervalNanos - (System.nanoTime() - lastSync);
+                    first = queue.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                } else {
+                    first = queue.take();
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                // Only closing stops the writer; games may still be queued.
+            }
+            closing = batch.remove(CLOSE);
+            try {
+                if (!batch.isEmpty()) {
+                    long start = Metrics.start();
+                    store.recordAll(batch);
+                    Metrics.record(Metrics.Metric.SCORE_WRITE, start);
+                    unsynced = true;
+                }
+                if (unsynced && shouldSync(closing, lastSync)) {
+                    long start = Metrics.start();
+                    store.sync();
+                    Metrics.record(Metrics.Metric.SCORE_SYNC, start);
+                    unsynced = false;
+                    lastSync = System.nanoTime();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    // Returns whether written games should be synced now, given when they were last synced.
+    private boolean shouldSync(boolean closing, long lastSync) {
+        switch (syncPolicy) {
+            case EVERY_BATCH:
+                return true;
+            case INTERVAL:
+                return closing || System.nanoTime() - lastSync >= syncIntervalNanos;
+            default:
+                return false;
+        }
+    }
+}
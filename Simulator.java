@@ -0,0 +1,287 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Plays many games of 2048 without any display and reports how a move policy performed. Games are split into one
+// batch per thread, and each batch keeps its own policy and results so threads share nothing until the end.
+// Given a scores file, every game is also recorded into that score store through one shared ScoreWriter, and
+// given a replays file, the replay of every game is added to that ReplayLog.
+//
+// Every game draws its spawns from its own generator, seeded from a generator per batch that is split off one
+// root generator. Setting the seed system property makes the whole simulation repeat exactly with policies that
+// do not use randomness themselves.
+//
+// Setting the millis system property gives the ai and montecarlo policies that many milliseconds per move, so
+// they can be compared within the same time budget. The ai policy then searches deeper and deeper until its time
+// runs out instead of to a fixed depth. The montecarlo policy thinks for MonteCarloPlayer.DEFAULT_MILLIS without
+// it, and its rollouts per second are reported with the results.
+//
+// Usage: java [-Dseed=n] [-Dmillis=n] Simulator [games] [random|greedy|ai|ntuple|montecarlo] [threads]
+//            [scores file] [replays file]
+public class Simulator {
+
+    // Initialization of constants.
+    public static final int DEFAULT_GAMES = 1000;
+    public static final String DEFAULT_POLICY = "greedy";
+
+    // Runs the simulation described by the command line arguments and prints a report.
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        String policyName = args.length > 1 ? args[1] : DEFAULT_POLICY;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        // Keeps every policy handed to a thread, to report what the players counted while thinking.
+        List<MovePolicy> createdPolicies = Collections.synchronizedList(new ArrayList<>());
+        Supplier<MovePolicy> newPolicies = createPolicies(policyName);
+        Supplier<MovePolicy> policies = () -> {
+            MovePolicy policy = newPolicies.get();
+            createdPolicies.add(policy);
+            return policy;
+        };
+        ScoreStore scoreStore = args.length > 3 ? ScoreStore.open(new File(args[3])) : null;
+        ScoreWriter scoreWriter = scoreStore == null ? null : new ScoreWriter(scoreStore);
+        ReplayLog replayLog = args.length > 4 ? new ReplayLog(new File(args[4])) : null;
+        Long seed = Long.getLong("seed");
+        SplittableRandom random = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+
+        long start = System.nanoTime();
+        Results results = simulate(games, threads, policies, random, scoreWriter, replayLog);
+        if (scoreWriter != null) {
+            scoreWriter.close();
+        }
+        if (replayLog != null) {
+            replayLog.close();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Policy: " + policyName + ", games: " + results.games + ", threads: " + threads);
+        printReport(results, elapsed);
+        printRollouts(createdPolicies, elapsed);
+        if (scoreStore != null) {
+            System.out.println("Recorded in " + args[3] + ", games: " + scoreStore.getCount() + ", best score: "
+                    + scoreStore.getBestScore());
+            scoreStore.close();
+        }
+    }
+
+    // Returns a source of new policies for given policy name, with the time per move of the millis system
+    // property if it is set.
+    public static Supplier<MovePolicy> createPolicies(String policyName) {
+        Long millis = Long.getLong("millis");
+        switch (policyName) {
+            case "random":
+                return RandomPolicy::new;
+            case "greedy":
+                return GreedyPolicy::new;
+            case "ai":
+                // Every thread searches on its own, so the player does not need a pool.
+                if (millis != null) {
+                    return () -> {
+                        ExpectimaxPlayer player = new ExpectimaxPlayer(ExpectimaxPlayer.DEFAULT_DEPTH,
+                                new TranspositionTable());
+                        return board -> player.chooseMove(board, millis);
+                    };
+                }
+                return () -> new ExpectimaxPlayer(ExpectimaxPlayer.DEFAULT_DEPTH, new TranspositionTable());
+            case "ntuple":
+                // Players only read the network, so every thread shares the one loaded.
+                NTupleNetwork network = loadNetwork(new File(NTupleTrainer.DEFAULT_WEIGHTS_FILE));
+                return () -> new NTuplePlayer(network);
+            case "montecarlo":
+                // Every thread plays out on its own, so the player does not need a pool.
+                long millisPerMove = millis != null ? millis : MonteCarloPlayer.DEFAULT_MILLIS;
+                return () -> new MonteCarloPlayer(millisPerMove, null);
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + policyName);
+        }
+    }
+
+    // Reads the n-tuple network in given file, written by NTupleTrainer.
+    private static NTupleNetwork loadNetwork(File file) {
+        try {
+            return NTupleNetwork.load(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read n-tuple weights from " + file, e);
+        }
+    }
+
+    // Plays given number of games spread over given number of threads. Every thread gets its own policy.
+    public static Results simulate(int games, int threads, Supplier<MovePolicy> policies)
+            throws InterruptedException, ExecutionException {
+        return simulate(games, threads, policies, new SplittableRandom(), null, null);
+    }
+
+    // Plays given number of games spread over given number of threads, submitting each finished game to given
+    // writer and appending its replay to given log, unless they are null. Every thread gets its own policy and
+    // its own generator split off the given one.
+    public static Results simulate(int games, int threads, Supplier<MovePolicy> policies, SplittableRandom random,
+            ScoreWriter scoreWriter, ReplayLog replayLog) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Results>> batches = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                // Spreads the remainder so batch sizes differ by at most one game.
+                int batchGames = games / threads + (thread < games % threads ? 1 : 0);
+                SplittableRandom batchRandom = random.split();
+                batches.add(executor.submit(() -> playBatch(batchGames, policies.get(), batchRandom, scoreWriter,
+                        replayLog)));
+            }
+            Results results = new Results(games);
+            for (Future<Results> batch : batches) {
+                results.add(batch.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Plays given number of games with given policy on the calling thread.
+    public static Results playBatch(int games, MovePolicy policy) {
+        return playBatch(games, policy, new SplittableRandom(), null, null);
+    }
+
+    // Plays given number of games with given policy on the calling thread, submitting each finished game to
+    // given writer and appending its replay to given log, unless they are null. Each game is seeded from given
+    // generator.
+    public static Results playBatch(int games, MovePolicy policy, SplittableRandom random, ScoreWriter scoreWriter,
+            ReplayLog replayLog) {
+        Results results = new Results(games);
+        for (int game = 0; game < games; game++) {
+            long seed = random.nextLong();
+            SplittableRandom gameRandom = new SplittableRandom(seed);
+            long board = GameEngine.newGame(gameRandom);
+            Replay replay = replayLog == null ? null : new Replay(seed, board);
+            int score = 0;
+            int moves = 0;
+            int move = policy.chooseMove(board);
+            while (move >= 0) {
+                score += GameEngine.moveScore(board, move);
+                board = GameEngine.spawnTile(GameEngine.move(board, move), gameRandom);
+                if (replay != null) {
+                    replay.record(move, board);
+                }
+                moves++;
+                move = policy.chooseMove(board);
+            }
+            if (replay != null) {
+                try {
+                    replayLog.append(replay);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            int maxExponent = GameEngine.maxExponent(board);
+            results.record(score, maxExponent, moves);
+            if (scoreWriter != null) {
+                scoreWriter.submit(score, maxExponent, System.currentTimeMillis());
+            }
+        }
+        return results;
+    }
+
+    // Prints score distribution, max tile histogram and throughput of given results.
+    private static void printReport(Results results, long elapsedNanos) {
+        int[] scores = Arrays.copyOf(results.scores, results.games);
+        Arrays.sort(scores);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Time: %.2f s, %.1f games/s, %.0f moves/s%n", seconds, results.games / seconds,
+                results.moves / seconds);
+        if (results.games == 0) {
+            return;
+        }
+        System.out.printf("Score: mean %.1f, min %d, median %d, p90 %d, p99 %d, max %d%n",
+                (double) results.totalScore / results.games, scores[0], percentile(scores, 50),
+                percentile(scores, 90), percentile(scores, 99), scores[scores.length - 1]);
+        System.out.println("Max tile:");
+        for (int exponent = 1; exponent <= GameEngine.MAX_EXPONENT; exponent++) {
+            long count = results.maxTiles[exponent];
+            if (count > 0) {
+                System.out.printf("%8d  %10d  %6.2f%%%n", GameEngine.tileValue(exponent), count,
+                        100.0 * count / results.games);
+            }
+        }
+    }
+
+    // Prints how many playouts the Monte Carlo players among given policies finished, in total and per second of
+    // given elapsed time. Prints nothing for other policies.
+    private static void printRollouts(List<MovePolicy> policies, long elapsedNanos) {
+        long rollouts = 0;
+        boolean monteCarlo = false;
+        for (MovePolicy policy : policies) {
+            if (policy instanceof MonteCarloPlayer) {
+                rollouts += ((MonteCarloPlayer) policy).getRollouts();
+                monteCarlo = true;
+            }
+        }
+        if (monteCarlo) {
+            System.out.printf("Rollouts: %d, %.0f rollouts/s%n", rollouts, rollouts / (elapsedNanos / 1e9));
+        }
+    }
+
+    // Returns the score at given percentile of sorted scores.
+    private static int percentile(int[] sortedScores, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedScores.length) - 1;
+        return sortedScores[Math.max(0, index)];
+    }
+
+    // Results of a batch of games. Holds raw scores for the distribution and counts of each max tile.
+    public static class Results {
+
+        private int[] scores;
+        private int games;
+        private long totalScore;
+        private long moves;
+        private final long[] maxTiles;
+
+        // Constructs empty results with room for given number of games.
+        private Results(int expectedGames) {
+            scores = new int[Math.max(1, expectedGames)];
+            maxTiles = new long[GameEngine.MAX_EXPONENT + 1];
+        }
+
+        // Records one finished game.
+        private void record(int score, int maxExponent, int gameMoves) {
+            if (games == scores.length) {
+                scores = Arrays.copyOf(scores, games * 2);
+            }
+            scores[games++] = score;
+            totalScore += score;
+            moves += gameMoves;
+            maxTiles[maxExponent]++;
+        }
+
+        // Adds every game of other results to these results.
+        private void add(Results other) {
+            if (games + other.games > scores.length) {
+                scores = Arrays.copyOf(scores, games + other.games);
+            }
+            System.arraycopy(other.scores, 0, scores, games, other.games);
+            games += other.games;
+            totalScore += other.totalScore;
+            moves += other.moves;
+            for (int exponent = 0; exponent < maxTiles.length; exponent++) {
+                maxTiles[exponent] += other.maxTiles[exponent];
+            }
+        }
+
+        // Returns the number of games played.
+        public int getGames() {
+            return games;
+        }
+
+        // Returns the mean score of all games played.
+        public double meanScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+// Pre-rendered images of full size tiles, one per tile value, for one tile size. Each image is drawn once with
+// its color, value and centered text, so painting a tile is a single image copy.
+public class TileSprites {
+
+    // Initialization of constants.
+    public static final Color FONT_COLOR_LARGE = new Color(250, 247, 241);
+    public static final Color FONT_COLOR_SMALL = new Color(118, 111, 100);
+    public static final int ARC = 10;
+
+    // Font sizes for a tile of GameBoard.TILE_SIZE. Other tile sizes scale them.
+    private static final float FONT_SIZE_LARGE = 39;
+    private static final float FONT_SIZE_MEDIUM = 50;
+    private static final float FONT_SIZE_SMALL = 60;
+
+    private final int tileSize;
+    private final Font fontLarge;
+    private final Font fontMedium;
+    private final Font fontSmall;
+    private final BufferedImage[] sprites;
+
+    // Constructs sprites of given tile size using given font. Images are rendered when first needed.
+    public TileSprites(Font gameFont, int tileSize) {
+        this.tileSize = tileSize;
+        float scale = (float) tileSize / GameBoard.TILE_SIZE;
+        fontLarge = gameFont.deriveFont(FONT_SIZE_LARGE * scale);
+        fontMedium = gameFont.deriveFont(FONT_SIZE_MEDIUM * scale);
+        fontSmall = gameFont.deriveFont(FONT_SIZE_SMALL * scale);
+        sprites = new BufferedImage[GameEngine.MAX_EXPONENT + 1];
+    }
+
+    // Renders every sprite that has not been rendered yet.
+    public void renderAll() {
+        for (int exponent = 1; exponent <= GameEngine.MAX_EXPONENT; exponent++) {
+            getSprite(exponent);
+        }
+    }
+
+    // Returns the image of a tile with the value given by exponent.
+    public BufferedImage getSprite(int exponent) {
+        BufferedImage sprite = sprites[exponent];
+        if (sprite == null) {
+            sprite = render(exponent);
+            sprites[exponent] = sprite;
+        }
+        return sprite;
+    }
+
+    // Returns the size of the tiles drawn by these sprites.
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    // Draws the tile with the value given by exponent into a new image.
+    private BufferedImage render(int exponent) {
+        int tileValue = GameEngine.tileValue(exponent);
+        BufferedImage sprite = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setColor(GameBoard.tileColor(exponent));
+        g.fillRoundRect(0, 0, tileSize, tileSize, ARC, ARC);
+        g.setFont(tileValue < 128 ? fontSmall : tileValue < 1024 ? fontMedium : fontLarge);
+        g.setColor(tileValue < 8 ? FONT_COLOR_SMALL : FONT_COLOR_LARGE);
+        drawCenteredText(g, Integer.toString(tileValue));
+        g.dispose();
+        return sprite;
+    }
+
+    // Draws given text centered in the tile.
+    private void drawCenteredText(Graphics2D g, String textDisplay) {
+        FontMetrics fm = g.getFontMetrics();
+        Rectangle2D r = fm.getStringBounds(textDisplay, g);
+        // Shrinks the font of values too wide for the tile.
+        int maxWidth = tileSize - 2 * ARC;
+        if (r.getWidth() > maxWidth) {
+            g.setFont(g.getFont().deriveFont((float) (g.getFont().getSize2D() * maxWidth / r.getWidth())));
+            fm = g.getFontMetrics();
+            r = fm.getStringBounds(textDisplay, g);
+        }
+        int fontXValue = tileSize / 2 - (int) (r.getWidth() / 2);
+        int fontYValue = tileSize / 2 - (int) (fm.getHeight() / 2) + fm.getAscent();
+        g.drawString(textDisplay, fontXValue, fontYValue);
+    }
+}
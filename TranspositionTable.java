@@ -0,0 +1,92 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Fixed size cache of search results keyed by packed board. Memory is bounded by the number of slots given at
+// construction. Each board hashes to one slot; a stored result is replaced when it comes from an older search or
+// when the new result was searched at least as deep, so deep results from the current search are kept longest.
+//
+// The table is shared by parallel searches without locks. Each slot is two longs: the packed entry and the board
+// XOR the entry. A reader only trusts a slot when the XOR gives back its board, so a slot torn by two threads
+// writing at once reads as a miss instead of a wrong value.
+public class TranspositionTable {
+
+    // Initialization of constants.
+    public static final int DEFAULT_SIZE_BITS = 20;
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Layout of a packed entry: value as float bits, then generation, then depth plus one (zero if empty).
+    private static final int VALUE_SHIFT = 32;
+    private static final int GENERATION_SHIFT = 8;
+    private static final long BYTE_MASK = 0xFFL;
+
+    private final long[] checks;
+    private final long[] entries;
+    private final int mask;
+    private final int shift;
+    private volatile int generation;
+
+    // Constructs a table with the default number of slots.
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_BITS);
+    }
+
+    // Constructs a table with 2^sizeBits slots.
+    public TranspositionTable(int sizeBits) {
+        int size = 1 << sizeBits;
+        checks = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+        shift = 64 - sizeBits;
+    }
+
+    // Marks the start of a new search. Results from earlier searches become the first to be replaced.
+    public void newSearch() {
+        generation = (generation + 1) & (int) BYTE_MASK;
+    }
+
+    // Returns the stored value for given board if it was searched to at least given depth, otherwise NaN.
+    public double get(long board, int depth) {
+        int slot = slot(board);
+        long entry = (long) SLOTS.getOpaque(entries, slot);
+        long check = (long) SLOTS.getOpaque(checks, slot);
+        if ((check ^ entry) == board && (entry & BYTE_MASK) > depth) {
+            return Float.intBitsToFloat((int) (entry >>> VALUE_SHIFT));
+        }
+        return Double.NaN;
+    }
+
+    // Stores the value of given board searched to given depth, replacing the slot's result if allowed.
+    public void put(long board, int depth, double value) {
+        int slot = slot(board);
+        long current = (long) SLOTS.getOpaque(entries, slot);
+        long currentDepth = current & BYTE_MASK;
+        int currentGeneration = (int) ((current >>> GENERATION_SHIFT) & BYTE_MASK);
+        int searchGeneration = generation;
+        if (currentDepth == 0 || currentGeneration != searchGeneration || currentDepth <= depth + 1) {
+            long entry = ((long) Float.floatToRawIntBits((float) value) << VALUE_SHIFT)
+                    | ((long) searchGeneration << GENERATION_SHIFT) | (depth + 1);
+            SLOTS.setOpaque(entries, slot, entry);
+            SLOTS.setOpaque(checks, slot, board ^ entry);
+        }
+    }
+
+    // Empties every slot. Must not run while a search is using the table.
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            entries[slot] = 0;
+            checks[slot] = 0;
+        }
+    }
+
+    // Returns the number of slots.
+    public int size() {
+        return mask + 1;
+    }
+
+    // Returns the slot that given board hashes to.
+    private int slot(long board) {
+        return (int) ((board * HASH_MULTIPLIER) >>> shift) & mask;
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.util.Random;
+
+// Reproducible packed boards for benchmarks to work on.
+final class Boards {
+
+    // Initialization of constants.
+    static final int NUM_BOARDS = 1024;
+    static final long SEED = 2048;
+
+    private Boards() {
+    }
+
+    // Returns the default number of boards where about a third of the cells are empty and the rest hold tiles up
+    // to 1024.
+    static long[] midGame() {
+        return midGame(NUM_BOARDS);
+    }
+
+    // Returns given number of boards where about a third of the cells are empty and the rest hold tiles up to 1024.
+    static long[] midGame(int count) {
+        Random random = new Random(SEED);
+        long[] boards = new long[count];
+        for (int i = 0; i < count; i++) {
+            long board = 0;
+            for (int cell = 0; cell < 16; cell++) {
+                int exponent = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(10);
+                board |= (long) exponent << (cell << 2);
+            }
+            boards[i] = board;
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Rules of the game on packed boards: moving, scoring, the legal move check behind gameOver and tile spawning,
+// and the Evaluator that search players judge boards with.
+// Every invocation works on the next of a fixed set of boards so results do not depend on one position.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private long[] boards;
+    private int index;
+    private Object evaluator;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    // Builds the boards to benchmark on and the evaluator.
+    @Setup
+    public void setUp() throws Throwable {
+        boards = Boards.midGame();
+        evaluator = (Object) Handles.DEFAULT_EVALUATOR.invokeExact();
+    }
+
+    // Returns the next board to work on.
+    private long nextBoard() {
+        index = (index + 1) & (Boards.NUM_BOARDS - 1);
+        return boards[index];
+    }
+
+    // Moves a board in all four directions, which is what a swipe and a full gameOver check used to cost.
+    @Benchmark
+    public long moveAllDirections() throws Throwable {
+        long board = nextBoard();
+        return (long) Handles.MOVE.invokeExact(board, 0) ^ (long) Handles.MOVE.invokeExact(board, 1)
+                ^ (long) Handles.MOVE.invokeExact(board, 2) ^ (long) Handles.MOVE.invokeExact(board, 3);
+    }
+
+    // Scores a move left.
+    @Benchmark
+    public int moveScore() throws Throwable {
+        return (int) Handles.MOVE_SCORE.invokeExact(nextBoard(), 2);
+    }
+
+    // Computes the legal move mask that gameOver is based on.
+    @Benchmark
+    public int legalMoves() throws Throwable {
+        return (int) Handles.LEGAL_MOVES.invokeExact(nextBoard());
+    }
+
+    // Spawns a tile in a random empty cell.
+    @Benchmark
+    public long spawnTile() throws Throwable {
+        return (long) Handles.SPAWN_TILE.invokeExact(nextBoard(), random);
+    }
+
+    // Evaluates a board with the default weights: eight table lookups over its rows and columns.
+    @Benchmark
+    public double evaluate() throws Throwable {
+        return (double) Handles.EVALUATE.invokeExact(evaluator, nextBoard());
+    }
+
+    // Spawns a tile on a board with a single empty cell, where picking cells at random until one is empty took
+    // sixteen tries on average.
+    @Benchmark
+    public long spawnTileNearlyFull() throws Throwable {
+        return (long) Handles.SPAWN_TILE.invokeExact(nextBoard() | 0x1111111111111110L, random);
+    }
+}
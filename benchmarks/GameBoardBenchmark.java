@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The Swing side of a turn: the gameOver check run on every key release, a whole swipe with its animation
+// played out, and painting the board offscreen.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameBoardBenchmark {
+
+    // Initialization of constants.
+    private static final int BOARD_LENGTH = 500;
+
+    private File scoresFile;
+    private Font font;
+    private Object scoreBoard;
+    private Object gameBoard;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int direction;
+    private final Runnable turn = this::playTurn;
+
+    // Builds a board to benchmark and an image to paint it into.
+    @Setup
+    public void setUp() throws Throwable {
+        scoresFile = File.createTempFile("Scores", ".txt");
+        font = loadFont();
+        scoreBoard = (Object) Handles.NEW_SCORE_BOARD.invokeExact(font, scoresFile);
+        gameBoard = newGameBoard();
+        image = new BufferedImage(BOARD_LENGTH, BOARD_LENGTH, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    // Releases the image and the temporary score file.
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+        scoresFile.delete();
+    }
+
+    // Checks whether the game is over, as every key release does.
+    @Benchmark
+    public boolean gameOver() throws Throwable {
+        return (boolean) Handles.GAME_OVER.invokeExact(gameBoard);
+    }
+
+    // Swipes and plays the animation through to the spawned tile, on the event dispatch thread that owns the
+    // board. Includes the cost of handing the turn to that thread.
+    @Benchmark
+    public Object swipeAndAnimate() throws Exception {
+        SwingUtilities.invokeAndWait(turn);
+        return gameBoard;
+    }
+
+    // Paints the whole board into an offscreen image.
+    @Benchmark
+    public BufferedImage paint() throws Throwable {
+        Handles.PAINT.invokeExact(gameBoard, (Graphics) graphics);
+        return image;
+    }
+
+    // Plays one swipe to completion, starting a new game when the current one is over.
+    private void playTurn() {
+        try {
+            if ((boolean) Handles.GAME_OVER.invokeExact(gameBoard)) {
+                gameBoard = newGameBoard();
+            }
+            direction = (direction + 1) & 3;
+            Handles.SWIPE.invokeExact(gameBoard, direction);
+            // Plays the animation through at once instead of waiting for its frames.
+            Handles.FINISH_MOVE.invokeExact(gameBoard);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a new game board sized for painting.
+    private Object newGameBoard() {
+        Object board = Handles.newInstance("GameBoard", new Class<?>[] { Handles.type("ScoreBoard"), Font.class },
+                scoreBoard, font);
+        ((JComponent) board).setSize(BOARD_LENGTH, BOARD_LENGTH);
+        return board;
+    }
+
+    // Loads the game font, falling back to a logical font when not run from the repository root.
+    private static Font loadFont() {
+        try {
+            return Font.createFont(Font.TRUETYPE_FONT, new File("GameFont.ttf"));
+        } catch (FontFormatException | IOException e) {
+            return new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package benchmarks;
+
+import java.awt.Font;
+import java.awt.Graphics;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+
+// Method handles into the game. The game classes live in the default package, which code in a package cannot
+// name, and JMH does not allow benchmarks in the default package. Handles held in static final fields are
+// constants to the JIT, so calls through them are inlined like direct calls.
+final class Handles {
+
+    // GameEngine.
+    static final MethodHandle MOVE = findStatic("GameEngine", "move", long.class, long.class, int.class);
+    static final MethodHandle MOVE_SCORE = findStatic("GameEngine", "moveScore", int.class, long.class, int.class);
+    static final MethodHandle LEGAL_MOVES = findStatic("GameEngine", "legalMoves", int.class, long.class);
+    static final MethodHandle SPAWN_TILE = findStatic("GameEngine", "spawnTile", long.class, long.class,
+            SplittableRandom.class);
+    static final MethodHandle SET_CELL = findStatic("GameEngine", "setCell", long.class, long.class, int.class,
+            int.class);
+
+    // Players and simulation.
+    static final MethodHandle CHOOSE_MOVE = findVirtual("MovePolicy", "chooseMove", int.class, long.class);
+    static final MethodHandle CHOOSE_MOVE_MONTE_CARLO = findVirtual("MonteCarloPlayer", "chooseMove", int.class,
+            long.class, long.class);
+    static final MethodHandle PLAY_BATCH = findStatic("Simulator", "playBatch", type("Simulator$Results"),
+            int.class, type("MovePolicy"));
+    static final MethodHandle DEFAULT_EVALUATOR = findStatic("Evaluator", "getDefault", type("Evaluator"));
+    static final MethodHandle EVALUATE = findVirtual("Evaluator", "evaluate", double.class, long.class);
+
+    // GameBoard and ScoreBoard.
+    static final MethodHandle GAME_OVER = findVirtual("GameBoard", "gameOver", boolean.class);
+    static final MethodHandle SWIPE = findVirtual("GameBoard", "swipe", void.class, int.class);
+    static final MethodHandle FINISH_MOVE = findVirtual("GameBoard", "finishMove", void.class);
+    static final MethodHandle PAINT = findVirtual("GameBoard", "paint", void.class, Graphics.class);
+    static final MethodHandle NEW_SCORE_BOARD = findConstructor("ScoreBoard", Font.class,
+            type("ScoreWriter"));
+    static final MethodHandle SCORE_BOARD_GAME_OVER = findVirtual("ScoreBoard", "gameOver", void.class, int.class);
+    static final MethodHandle UPDATE_SCORE = findVirtual("ScoreBoard", "updateScore", void.class, int.class);
+
+    // ScoreStore.
+    static final MethodHandle OPEN_SCORE_STORE = findStatic("ScoreStore", "open", type("ScoreStore"), File.class);
+    static final MethodHandle RECORD_SCORE = findVirtual("ScoreStore", "record", void.class, int.class, int.class,
+            long.class);
+    static final MethodHandle NEW_SCORE_WRITER = findConstructor("ScoreWriter", type("ScoreStore"));
+    static final MethodHandle FLUSH_SCORES = findVirtual("ScoreWriter", "flush", void.class);
+    static final MethodHandle GET_HISTORY = findVirtual("ScoreStore", "getHistory", type("ScoreHistory"));
+    static final MethodHandle RANK = findVirtual("ScoreHistory", "rank", long.class, int.class);
+    static final MethodHandle SCORE_AT_PERCENTILE = findVirtual("ScoreHistory", "scoreAtPercentile", int.class,
+            double.class);
+
+    private Handles() {
+    }
+
+    // Returns the game class with given name.
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a new instance of given game class built with its constructor taking given arguments.
+    static Object newInstance(String className, Class<?>[] parameterTypes, Object... arguments) {
+        try {
+            return type(className).getConstructor(parameterTypes).newInstance(arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a handle to a static method with its exact types.
+    private static MethodHandle findStatic(String className, String name, Class<?> returnType,
+            Class<?>... parameterTypes) {
+        try {
+            Class<?> owner = type(className);
+            return lookup(owner).findStatic(owner, name, MethodType.methodType(returnType, parameterTypes))
+                    .asType(MethodType.methodType(erase(returnType), erase(parameterTypes)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a handle to an instance method that takes its receiver as Object.
+    private static MethodHandle findVirtual(String className, String name, Class<?> returnType,
+            Class<?>... parameterTypes) {
+        try {
+            Class<?> owner = type(className);
+            MethodHandle handle = lookup(owner).findVirtual(owner, name,
+                    MethodType.methodType(returnType, parameterTypes));
+            return handle.asType(MethodType.methodType(erase(returnType), erase(parameterTypes))
+                    .insertParameterTypes(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a handle to a constructor that returns the new instance as Object.
+    private static MethodHandle findConstructor(String className, Class<?>... parameterTypes) {
+        try {
+            Class<?> owner = type(className);
+            return lookup(owner).findConstructor(owner, MethodType.methodType(void.class, parameterTypes))
+                    .asType(MethodType.methodType(Object.class, erase(parameterTypes)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns a lookup with full access to given game class.
+    private static MethodHandles.Lookup lookup(Class<?> owner) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+    }
+
+    // Replaces game classes, which benchmarks cannot name, with Object.
+    private static Class<?> erase(Class<?> type) {
+        return type.isPrimitive() || type.getName().contains(".") ? type : Object.class;
+    }
+
+    // Replaces game classes in given parameter types with Object.
+    private static Class<?>[] erase(Class<?>[] types) {
+        Class<?>[] erased = new Class<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            erased[i] = erase(types[i]);
+        }
+        return erased;
+    }
+}
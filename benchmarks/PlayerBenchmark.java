@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Move policies choosing a move, and whole games played by the simulator.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+
+    // Initialization of constants.
+    // Enough boards that the transposition table cannot simply remember every search from the last round.
+    private static final int NUM_BOARDS = 1 << 16;
+
+    @Param({ "2", "3" })
+    public int depth;
+
+    private long[] boards;
+    private int index;
+    private Object sequentialPlayer;
+    private Object parallelPlayer;
+    private Object greedyPolicy;
+    private Object monteCarloPlayer;
+
+    // Builds the boards and players to benchmark.
+    @Setup
+    public void setUp() {
+        boards = Boards.midGame(NUM_BOARDS);
+        Class<?>[] playerParameters = { int.class, Handles.type("TranspositionTable"), ForkJoinPool.class };
+        sequentialPlayer = Handles.newInstance("ExpectimaxPlayer", playerParameters, depth,
+                Handles.newInstance("TranspositionTable", new Class<?>[0]), null);
+        parallelPlayer = Handles.newInstance("ExpectimaxPlayer", playerParameters, depth,
+                Handles.newInstance("TranspositionTable", new Class<?>[0]), ForkJoinPool.commonPool());
+        greedyPolicy = Handles.newInstance("GreedyPolicy", new Class<?>[0]);
+        monteCarloPlayer = Handles.newInstance("MonteCarloPlayer", new Class<?>[] { long.class, ForkJoinPool.class },
+                0L, null);
+    }
+
+    // Returns the next board to work on.
+    private long nextBoard() {
+        index = (index + 1) & (NUM_BOARDS - 1);
+        return boards[index];
+    }
+
+    // Expectimax search on the calling thread.
+    @Benchmark
+    public int expectimaxSequential() throws Throwable {
+        return (int) Handles.CHOOSE_MOVE.invokeExact(sequentialPlayer, nextBoard());
+    }
+
+    // Expectimax search split across the common ForkJoinPool.
+    @Benchmark
+    public int expectimaxParallel() throws Throwable {
+        return (int) Handles.CHOOSE_MOVE.invokeExact(parallelPlayer, nextBoard());
+    }
+
+    // One round of Monte Carlo playouts on the calling thread: with no time to think, the player plays one batch
+    // of playouts per legal direction. The search depth does not apply.
+    @Benchmark
+    public int monteCarloRound() throws Throwable {
+        return (int) Handles.CHOOSE_MOVE_MONTE_CARLO.invokeExact(monteCarloPlayer, nextBoard(), 0L);
+    }
+
+    // One complete game played by the greedy policy.
+    @Benchmark
+    public Object greedyGame() throws Throwable {
+        return (Object) Handles.PLAY_BATCH.invokeExact(1, greedyPolicy);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.awt.Font;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Loading score history when a ScoreBoard is built, saving it when a game ends and leaderboard queries, for
+// histories of different lengths. Works on a temporary store so the real score file is never touched.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ScoreBoardBenchmark {
+
+    @Param({ "100", "100000" })
+    public int previousGames;
+
+    private File scoresFile;
+    private Object scoreStore;
+    private Object scoreWriter;
+    private Object scoreBoard;
+    private Object scoreHistory;
+
+    // Writes a score history of the benchmarked length.
+    @Setup(Level.Iteration)
+    public void setUp() throws Throwable {
+        scoresFile = File.createTempFile("Scores", ".bin");
+        scoresFile.delete();
+        scoreStore = (Object) Handles.OPEN_SCORE_STORE.invokeExact(scoresFile);
+        for (int game = 0; game < previousGames; game++) {
+            Handles.RECORD_SCORE.invokeExact(scoreStore, game * 4, 8, (long) game);
+        }
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+        scoreWriter = (Object) Handles.NEW_SCORE_WRITER.invokeExact(scoreStore);
+        scoreBoard = (Object) Handles.NEW_SCORE_BOARD.invokeExact(font, scoreWriter);
+        scoreHistory = (Object) Handles.GET_HISTORY.invokeExact(scoreStore);
+    }
+
+    // Removes the temporary score history.
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        ((Closeable) scoreWriter).close();
+        ((Closeable) scoreStore).close();
+        scoresFile.delete();
+    }
+
+    // Opens the score history and reads what a ScoreBoard needs from it.
+    @Benchmark
+    public Object load() throws Throwable {
+        Object store = (Object) Handles.OPEN_SCORE_STORE.invokeExact(scoresFile);
+        ((Closeable) store).close();
+        return store;
+    }
+
+    // Ends a game, which queues its score to be saved with the rest of the history. This is all the game over
+    // screen waits for. The history grows by one game per call until the next iteration starts over.
+    @Benchmark
+    public Object save() throws Throwable {
+        Handles.UPDATE_SCORE.invokeExact(scoreBoard, 4);
+        Handles.SCORE_BOARD_GAME_OVER.invokeExact(scoreBoard, 11);
+        return scoreBoard;
+    }
+
+    // Ends a game and waits until its score is written, which is what the disk costs per game.
+    @Benchmark
+    public Object saveAndFlush() throws Throwable {
+        Handles.UPDATE_SCORE.invokeExact(scoreBoard, 4);
+        Handles.SCORE_BOARD_GAME_OVER.invokeExact(scoreBoard, 11);
+        Handles.FLUSH_SCORES.invokeExact(scoreWriter);
+        return scoreBoard;
+    }
+
+    // Places a score among all previous games, as the score board does on every score change.
+    @Benchmark
+    public long rank() throws Throwable {
+        return (long) Handles.RANK.invokeExact(scoreHistory, 200);
+    }
+
+    // Finds the median score of all previous games.
+    @Benchmark
+    public int median() throws Throwable {
+        return (int) Handles.SCORE_AT_PERCENTILE.invokeExact(scoreHistory, 50.0);
+    }
+}